@@ -39,4 +39,6 @@ create table if not exists thumb
 );
 create unique index idx_userId_blogId
     on thumb (userId, blogId);
+create index idx_blogId_userId
+    on thumb (blogId, userId);
 
@@ -0,0 +1,157 @@
+package com.allen.thumb.config;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按类型紧凑编码的 RedisSerializer
+ * <p>
+ * 第一个字节是类型标签，Long/Integer 之后是 zigzag varint，Boolean 只有标签，String 之后是 UTF-8；
+ * 其他类型交给 fallback（JSON），按 fallback 的格式原样写入。
+ * 标签都小于 0x20 且不是空白字符，JSON 不会以这些字节开头，因此读取时可以按第一个字节区分两种格式，
+ * 切换前写入的 JSON 和 Lua 脚本写入的数字（如 "1"）都能读取，纯数字直接解析，不经过 Jackson。
+ * <p>
+ * writeCompact 为 false 时只读不写，用于滚动升级：所有节点都能读取紧凑格式之后再开启写入。
+ *
+ * @author KiveAllen
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte LONG = 0x01;
+
+    static final byte INT = 0x02;
+
+    static final byte TRUE = 0x03;
+
+    static final byte FALSE = 0x04;
+
+    static final byte STRING = 0x05;
+
+    // 超过 18 位的数字可能超出 long，交给 fallback
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final RedisSerializer<Object> fallback;
+
+    private final boolean writeCompact;
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback, boolean writeCompact) {
+        this.fallback = fallback;
+        this.writeCompact = writeCompact;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!writeCompact) {
+            return fallback.serialize(value);
+        }
+        if (value instanceof Long l) {
+            return varint(LONG, l);
+        }
+        if (value instanceof Integer i) {
+            return varint(INT, i);
+        }
+        if (value instanceof Boolean b) {
+            return new byte[]{b ? TRUE : FALSE};
+        }
+        if (value instanceof String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[utf8.length + 1];
+            bytes[0] = STRING;
+            System.arraycopy(utf8, 0, bytes, 1, utf8.length);
+            return bytes;
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return fallback.deserialize(bytes);
+        }
+        switch (bytes[0]) {
+            case LONG:
+                return readVarint(bytes);
+            case INT:
+                long value = readVarint(bytes);
+                if (value != (int) value) {
+                    throw new SerializationException("Integer 超出范围");
+                }
+                return (int) value;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case STRING:
+                return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+            default:
+                Object number = parseNumber(bytes);
+                return number != null ? number : fallback.deserialize(bytes);
+        }
+    }
+
+    private static byte[] varint(byte tag, long value) {
+        // zigzag 让绝对值小的负数也只占少量字节
+        long zigzag = (value << 1) ^ (value >> 63);
+        byte[] buffer = new byte[11];
+        buffer[0] = tag;
+        int length = 1;
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[length++] = (byte) zigzag;
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, 0, bytes, 0, length);
+        return bytes;
+    }
+
+    private static long readVarint(byte[] bytes) {
+        long zigzag = 0;
+        int shift = 0;
+        for (int i = 1; i < bytes.length; i++) {
+            byte b = bytes[i];
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (i != bytes.length - 1) {
+                    break;
+                }
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            shift += 7;
+            if (shift > 63) {
+                break;
+            }
+        }
+        throw new SerializationException("varint 格式错误");
+    }
+
+    /**
+     * 解析 Lua 脚本和 JSON 写入的整数，与 Jackson 一致：int 范围内为 Integer，否则为 Long
+     *
+     * @return 不是整数或位数过多时返回 null
+     */
+    private static Object parseNumber(byte[] bytes) {
+        int start = bytes[0] == '-' ? 1 : 0;
+        int digits = bytes.length - start;
+        if (digits == 0 || digits > MAX_FAST_DIGITS) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < bytes.length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            value = value * 10 + digit;
+        }
+        if (start == 1) {
+            value = -value;
+        }
+        if (value == (int) value) {
+            return (int) value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,344 @@
+package com.allen.thumb.config;
+
+import com.allen.thumb.manager.cache.TopKAlgorithm;
+import lombok.Data;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 热 Key 检测与本地缓存配置
+ * <p>
+ * 运行期可以通过 actuator 的 hotkey 端点修改，见 HotKeyEndpoint。
+ *
+ * @author KiveAllen
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotkey")
+public class HotKeyProperties {
+
+    /**
+     * 检测算法
+     */
+    private TopKAlgorithm algorithm = TopKAlgorithm.HEAVY_KEEPER;
+
+    /**
+     * 监控 Top K 个 Key
+     */
+    private int k = 100;
+
+    /**
+     * 哈希表宽度
+     */
+    private int width = 100000;
+
+    /**
+     * 哈希表深度
+     */
+    private int depth = 5;
+
+    /**
+     * 衰减系数
+     */
+    private double decay = 0.92;
+
+    /**
+     * 最小出现次数，低于该次数不进入 TopK
+     */
+    private int minCount = 10;
+
+    /**
+     * 计数衰减间隔
+     */
+    private Duration fadingInterval = Duration.ofSeconds(20);
+
+    /**
+     * 滑动窗口的子窗口数量，只有 WINDOWED_HEAVY_KEEPER 使用；
+     * 每个衰减间隔轮转一次，统计的是最近 windowCount × fadingInterval 内的访问量
+     */
+    private int windowCount = TopKAlgorithm.DEFAULT_WINDOW_COUNT;
+
+    /**
+     * 本地缓存
+     */
+    private LocalCache localCache = new LocalCache();
+
+    /**
+     * 哈希表自动扩容
+     */
+    private AutoSize autoSize = new AutoSize();
+
+    /**
+     * 本地缓存失效广播
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * Redis 客户端缓存
+     */
+    private Tracking tracking = new Tracking();
+
+    /**
+     * 用户点赞布隆过滤器
+     */
+    private ThumbFilter thumbFilter = new ThumbFilter();
+
+    /**
+     * 启动预热
+     */
+    private WarmUp warmUp = new WarmUp();
+
+    /**
+     * 热门博客的点赞用户集合
+     */
+    private HotBlog hotBlog = new HotBlog();
+
+    /**
+     * 复制一份配置，运行期可修改的本地缓存和自动扩容配置单独复制，其余嵌套配置与原对象共用
+     */
+    public HotKeyProperties copy() {
+        HotKeyProperties copy = new HotKeyProperties();
+        BeanUtils.copyProperties(this, copy);
+        copy.setLocalCache(new LocalCache());
+        BeanUtils.copyProperties(localCache, copy.getLocalCache());
+        copy.setAutoSize(new AutoSize());
+        BeanUtils.copyProperties(autoSize, copy.getAutoSize());
+        return copy;
+    }
+
+    @Data
+    public static class LocalCache {
+
+        /**
+         * 最大条目数，未设置 maximumWeight 时生效
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * 按估算的堆内存限制容量，设置后 maximumSize 不再生效
+         */
+        private DataSize maximumWeight;
+
+        /**
+         * 写入后过期时间
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+        /**
+         * 堆外存储
+         */
+        private OffHeap offHeap = new OffHeap();
+    }
+
+    /**
+     * 点赞状态（thumb:{userId} 中的整数值）存放在直接内存中，其他数据仍使用堆内缓存
+     */
+    @Data
+    public static class OffHeap {
+
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 直接内存大小，每个条目占 32 字节，最多使用 75%
+         */
+        private DataSize capacity = DataSize.ofMegabytes(256);
+
+        /**
+         * 分段数，段内读写互斥
+         */
+        private int segments = 64;
+    }
+
+    /**
+     * 每次衰减后检查上一周期的桶表统计，冲突率或占用率超过阈值时宽度翻倍，
+     * 新检测器用当前 TopK 成员初始化，热 Key 不会因为扩容而丢失
+     */
+    @Data
+    public static class AutoSize {
+
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 冲突率阈值
+         */
+        private double collisionThreshold = 0.3;
+
+        /**
+         * 槽位占用率阈值
+         */
+        private double occupancyThreshold = 0.9;
+
+        /**
+         * 宽度上限
+         */
+        private int maxWidth = 1_600_000;
+    }
+
+    @Data
+    public static class Invalidation {
+
+        /**
+         * 广播方式：REDIS 通过 Redis pub/sub 通知其他节点，LOCAL 只在本进程内生效（单节点部署）
+         */
+        private Mode mode = Mode.REDIS;
+
+        /**
+         * 批量发送间隔
+         */
+        private Duration flushInterval = Duration.ofMillis(20);
+
+        /**
+         * 单批最多 key 数，达到后立即发送
+         */
+        private int maxBatchSize = 512;
+
+        public enum Mode {
+            REDIS, LOCAL
+        }
+    }
+
+    /**
+     * 开启后读取走 Redis client tracking（RESP3），由 Redis 推送失效，
+     * 不可用时回退到热 Key + 本地缓存
+     */
+    @Data
+    public static class Tracking {
+
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 客户端缓存最大条目数
+         */
+        private int maximumSize = 100_000;
+
+        /**
+         * 出错后暂停使用的时长
+         */
+        private Duration retryInterval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class ThumbFilter {
+
+        /**
+         * 是否开启，默认关闭
+         * <p>
+         * 其他节点的点赞经 pub/sub 广播得知，广播丢失时过滤器会把已点赞判成未点赞，直到 expireAfterWrite 后重建；
+         * 只有单节点部署（invalidation.mode=LOCAL）时判定未点赞才是准确的
+         */
+        private boolean enabled = false;
+
+        /**
+         * 所有用户过滤器占用的内存上限
+         */
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+
+        /**
+         * 构建后的有效期，限制错过其他节点点赞广播时的漏判时长
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+        /**
+         * 误判率
+         */
+        private double fpp = 0.01;
+
+        /**
+         * 单个过滤器的最小预期元素数
+         */
+        private int minCapacity = 64;
+    }
+
+    /**
+     * 定时把热 Key 和本地缓存的 key 写入快照文件，启动时在就绪前恢复，
+     * 同时预加载 Lua 脚本、预先建立 Redis 和数据库连接
+     */
+    @Data
+    public static class WarmUp {
+
+        /**
+         * 是否开启快照
+         */
+        private boolean snapshotEnabled = true;
+
+        /**
+         * 快照文件，同一台机器部署多个节点时需要分别配置
+         */
+        private String snapshotPath = "data/cache-snapshot.bin";
+
+        /**
+         * 快照间隔
+         */
+        private Duration snapshotInterval = Duration.ofSeconds(30);
+
+        /**
+         * 快照超过该时长不再恢复，热点可能已经变化
+         */
+        private Duration snapshotMaxAge = Duration.ofHours(1);
+
+        /**
+         * 快照中本地缓存 key 的数量上限
+         */
+        private int maxLocalKeys = 100_000;
+
+        /**
+         * 启动时预先建立的 Redis 连接数
+         */
+        private int redisConnections = 8;
+
+        /**
+         * 启动时预先建立的数据库连接数
+         */
+        private int jdbcConnections = 8;
+    }
+
+    /**
+     * 进入 TopK 的博客在本地维护全部点赞用户，所有读者判断是否点赞都不必访问 Redis
+     */
+    @Data
+    public static class HotBlog {
+
+        /**
+         * 是否开启
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最多维护的博客数，按热度取前 maxBlogs 篇
+         */
+        private int maxBlogs = 20;
+
+        /**
+         * 单篇博客的点赞用户数上限，每个用户约 8 字节，超过的博客不在本地维护
+         */
+        private int maxLikers = 1_000_000;
+
+        /**
+         * 点赞从写入 Redis 到入库的最长时间，MQ 消费批次最长等待 10 秒，留出重试的余量
+         */
+        private Duration pendingWindow = Duration.ofSeconds(60);
+
+        /**
+         * pendingWindow 内最多记录的修改条数，超过时按博客淘汰，淘汰后 pendingWindow 内加载的博客暂不启用
+         */
+        private int maxRecentChanges = 200_000;
+
+        /**
+         * 集合加载后的最长使用时间，到期重新加载，限制失效广播丢失、MQ 积压超过 pendingWindow 时的偏差时长
+         */
+        private Duration maxAge = Duration.ofMinutes(5);
+    }
+}
@@ -0,0 +1,39 @@
+package com.allen.thumb.config;
+
+import com.allen.thumb.manager.cache.InMemoryInvalidationBus;
+import com.allen.thumb.manager.cache.InvalidationBus;
+import com.allen.thumb.manager.cache.RedisInvalidationBus;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 本地缓存失效广播配置
+ *
+ * @author KiveAllen
+ */
+@Configuration
+public class InvalidationBusConfig {
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    public InvalidationBus invalidationBus(HotKeyProperties hotKeyProperties,
+                                           StringRedisTemplate stringRedisTemplate,
+                                           RedisMessageListenerContainer cacheInvalidationListenerContainer) {
+        HotKeyProperties.Invalidation config = hotKeyProperties.getInvalidation();
+        if (config.getMode() == HotKeyProperties.Invalidation.Mode.LOCAL) {
+            return new InMemoryInvalidationBus(new InMemoryInvalidationBus.Hub(),
+                    config.getFlushInterval(), config.getMaxBatchSize());
+        }
+        return new RedisInvalidationBus(stringRedisTemplate, cacheInvalidationListenerContainer,
+                config.getFlushInterval(), config.getMaxBatchSize());
+    }
+}
@@ -1,7 +1,13 @@
 package com.allen.thumb.config;
 
+import com.allen.thumb.manager.cache.TrackingRedisClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -10,37 +16,139 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.RedisProtocol;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.csc.CacheConfig;
+import redis.clients.jedis.csc.CacheStats;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
 
 /**
  * @author KiveAllen
  */
+@Slf4j
 @Configuration
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, MeterRegistry registry,
+                                                       ThumbStorageProperties thumbStorageProperties) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
+        // 记录获取连接的等待时间
+        template.setConnectionFactory(new TimedRedisConnectionFactory(connectionFactory, registry));
 
         // 使用 Jackson2JsonRedisSerializer 序列化值
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+        RedisSerializer<Object> serializer = jsonSerializer();
 
         // Key 使用 String 序列化
         template.setKeySerializer(new StringRedisSerializer());
+        // Lua 脚本的参数也由它序列化，脚本按字符串使用参数，保持 JSON
         template.setValueSerializer(serializer);
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(serializer);
+        template.setHashValueSerializer(valueSerializer(thumbStorageProperties.getValueCodec(), serializer));
 
         template.afterPropertiesSet();
         return template;
     }
 
+    /**
+     * 带类型信息的 JSON 序列化
+     */
+    public static RedisSerializer<Object> jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        return new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+    }
+
+    /**
+     * 按配置的编码选择值的序列化方式，其他 RedisTemplate 可以各自选择
+     */
+    public static RedisSerializer<Object> valueSerializer(ThumbStorageProperties.ValueCodec codec,
+                                                          RedisSerializer<Object> json) {
+        return switch (codec) {
+            case JSON -> json;
+            case DUAL_READ -> new CompactRedisSerializer(json, false);
+            case COMPACT -> new CompactRedisSerializer(json, true);
+        };
+    }
+
     @Bean
     public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
         // 让 Spring Session 使用 JSON 方式存储
         return new GenericJackson2JsonRedisSerializer();
     }
 
+    /**
+     * 开启客户端缓存的独立连接池，与 RedisTemplate 使用同一个 Redis，值的序列化方式与 RedisTemplate 一致
+     */
+    @Bean(destroyMethod = "close")
+    public TrackingRedisClient trackingRedisClient(RedisProperties redisProperties,
+                                                   HotKeyProperties hotKeyProperties,
+                                                   RedisTemplate<String, Object> redisTemplate,
+                                                   MeterRegistry registry) {
+        HotKeyProperties.Tracking config = hotKeyProperties.getTracking();
+        if (!config.isEnabled()) {
+            return TrackingRedisClient.disabled();
+        }
+        DefaultJedisClientConfig clientConfig = DefaultJedisClientConfig.builder()
+                .protocol(RedisProtocol.RESP3)
+                .user(redisProperties.getUsername())
+                .password(redisProperties.getPassword())
+                .database(redisProperties.getDatabase())
+                .timeoutMillis(redisProperties.getTimeout() == null ? 2000 : (int) redisProperties.getTimeout().toMillis())
+                .build();
+        CacheConfig cacheConfig = CacheConfig.builder()
+                .maxSize(config.getMaximumSize())
+                .build();
+        UnifiedJedis jedis;
+        try {
+            RedisProperties.Cluster cluster = redisProperties.getCluster();
+            if (cluster != null && cluster.getNodes() != null && !cluster.getNodes().isEmpty()) {
+                // Redis Cluster 下由 JedisCluster 按 slot 路由，每个节点的连接各自开启 tracking
+                Set<HostAndPort> nodes = new HashSet<>();
+                cluster.getNodes().forEach(node -> nodes.add(HostAndPort.from(node)));
+                jedis = new JedisCluster(nodes, clientConfig, cacheConfig);
+            } else {
+                jedis = new JedisPooled(new HostAndPort(redisProperties.getHost(), redisProperties.getPort()),
+                        clientConfig, cacheConfig);
+            }
+            // Redis 6.0 以下不支持 RESP3，建连时就会失败
+            jedis.ping();
+        } catch (Exception e) {
+            log.warn("Redis 客户端缓存开启失败，使用热 Key + 本地缓存", e);
+            return TrackingRedisClient.disabled();
+        }
+
+        TrackingRedisClient client = new TrackingRedisClient(jedis, redisTemplate.getHashValueSerializer(),
+                config.getRetryInterval());
+        registerTrackingMetrics(client, registry);
+        return client;
+    }
+
+    private static void registerTrackingMetrics(TrackingRedisClient client, MeterRegistry registry) {
+        trackingCounter(registry, client, "hits", CacheStats::getHitCount);
+        trackingCounter(registry, client, "misses", CacheStats::getMissCount);
+        trackingCounter(registry, client, "invalidations", CacheStats::getInvalidationCount);
+        trackingCounter(registry, client, "evictions", CacheStats::getEvictCount);
+        FunctionCounter.builder("cache.tracking.fallbacks", client, TrackingRedisClient::fallbacks)
+                .description("Reads served by the hot-key cache because tracking was unavailable")
+                .register(registry);
+        Gauge.builder("cache.tracking.hit.ratio", client, TrackingRedisClient::hitRatio)
+                .description("Client-side cache hit ratio since startup")
+                .register(registry);
+        Gauge.builder("cache.tracking.size", client, TrackingRedisClient::size)
+                .register(registry);
+    }
+
+    private static void trackingCounter(MeterRegistry registry, TrackingRedisClient client, String name,
+                                        ToDoubleFunction<CacheStats> value) {
+        FunctionCounter.builder("cache.tracking." + name, client, c -> value.applyAsDouble(c.stats()))
+                .register(registry);
+    }
 }
\ No newline at end of file
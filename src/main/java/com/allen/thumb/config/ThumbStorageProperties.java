@@ -0,0 +1,77 @@
+package com.allen.thumb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 用户点赞状态在 Redis 中的存储配置
+ *
+ * @author KiveAllen
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.storage")
+public class ThumbStorageProperties {
+
+    /**
+     * 存储结构，MQ 模式下生效
+     */
+    private Layout layout = Layout.HASH;
+
+    /**
+     * 用户点赞数据的空闲过期时间，每次访问刷新，为空时不过期。
+     * 过期的用户在下次访问时从 thumb 表重新加载，点赞数据占用的 Redis 内存只与活跃用户数有关。
+     * <p>
+     * 判断数据是否过期依赖冷数据标记 {thumb:userId}:cold，标记不过期：点赞过的用户各保留一个，约 60 字节，
+     * 取消全部点赞时才删除，因此 Redis 内存仍随总用户数缓慢增长（1000 万用户约 600MB）。
+     * 标记不能设置过期时间，否则标记过期后的用户会被当作没有点赞过。
+     * <p>
+     * 只支持 MQ 点赞实现（thumbService），其他实现的脚本不认识冷数据标记，启动时由 ThumbStorageChecker 检查
+     */
+    private Duration idleTtl;
+
+    /**
+     * SET 结构要求 Redis 的 set-max-intset-entries 不低于该值，启动时检查，低于时告警。
+     * 点赞数超过 set-max-intset-entries 的用户改为 hashtable 编码，每个点赞 40 字节以上，点赞最多的用户节省最少
+     */
+    private int minIntsetEntries = 4096;
+
+    /**
+     * RedisTemplate 中 hash 值的编码
+     */
+    private ValueCodec valueCodec = ValueCodec.JSON;
+
+    public enum Layout {
+        /**
+         * thumb:{userId} hash，字段为博客 ID，值为 1 或点赞记录 ID。
+         * 字段数超过 hash-max-listpack-entries 后每个点赞约占 60~100 字节
+         */
+        HASH,
+        /**
+         * {thumb:userId}:set set，只保存博客 ID，与 thumb:{userId} 在同一个 slot。
+         * 元素数不超过 set-max-intset-entries 时为 intset 编码，每个点赞 4~8 字节；
+         * 切换后旧的 hash 在用户下次点赞或查询时迁移，其余由 ThumbLayoutMigrationJob 每天迁移。
+         * 只支持 MQ 点赞实现（thumbService），启动时由 ThumbStorageChecker 检查
+         */
+        SET
+    }
+
+    public enum ValueCodec {
+        /**
+         * 带类型信息的 Jackson JSON，点赞记录 ID 按十进制写入，约 19 字节
+         */
+        JSON,
+        /**
+         * 仍写入 JSON，同时能读取紧凑编码，滚动升级的第一步
+         */
+        DUAL_READ,
+        /**
+         * 写入紧凑编码，见 CompactRedisSerializer，点赞记录 ID 约 10 字节；
+         * 仍能读取 JSON，旧数据不需要迁移
+         */
+        COMPACT
+    }
+}
@@ -0,0 +1,64 @@
+package com.allen.thumb.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录从连接池获取连接耗时的 RedisConnectionFactory
+ * <p>
+ * 连接池耗尽时请求会在获取连接处排队，这部分等待不会体现在 Redis 的命令耗时里，
+ * 单独用直方图记录，方便区分是 Redis 慢还是连接池不够。
+ *
+ * @author KiveAllen
+ */
+public class TimedRedisConnectionFactory implements RedisConnectionFactory {
+
+    private final RedisConnectionFactory delegate;
+
+    private final Timer borrowTimer;
+
+    public TimedRedisConnectionFactory(RedisConnectionFactory delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.borrowTimer = Timer.builder("redis.pool.borrow")
+                .description("Time spent waiting for a pooled Redis connection")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getConnection();
+        } finally {
+            borrowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return delegate.getClusterConnection();
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate.getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate.getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate.translateExceptionIfPossible(ex);
+    }
+}
@@ -0,0 +1,15 @@
+package com.allen.thumb.constant;
+
+/**
+ * 多级缓存相关常量
+ *
+ * @author KiveAllen
+ */
+public interface CacheConstant {
+
+    /**
+     * 本地缓存失效广播频道
+     */
+    String INVALIDATION_CHANNEL = "cache:invalidation";
+
+}
@@ -0,0 +1,26 @@
+package com.allen.thumb.constant;
+
+/**
+ * 集群热 Key 相关常量
+ * 合并时 ZUNIONSTORE 同时访问所有 key，都以 {hotkey} 作为 hash tag 放在同一个 slot
+ *
+ * @author KiveAllen
+ */
+public interface HotKeyConstant {
+
+    /**
+     * 各节点上报的热 Key zset，%s 为节点 ID
+     */
+    String NODE_HOT_KEY_PREFIX = "{hotkey}:node:%s";
+
+    /**
+     * 存活节点 zset，score 为最近一次上报时间（毫秒）
+     */
+    String HOT_KEY_NODES_KEY = "{hotkey}:nodes";
+
+    /**
+     * 合并后的全局热 Key zset
+     */
+    String GLOBAL_HOT_KEY = "{hotkey}:global";
+
+}
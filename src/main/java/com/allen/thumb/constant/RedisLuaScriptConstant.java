@@ -3,11 +3,13 @@ package com.allen.thumb.constant;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 
+import java.util.List;
+
 public class RedisLuaScriptConstant {
 
     /**
      * 点赞 Lua 脚本
-     * KEYS[1]       -- 临时计数键
+     * KEYS[1]       -- 临时计数键，按用户拆分，与用户点赞状态键在同一个 slot
      * KEYS[2]       -- 用户点赞状态键
      * ARGV[1]       -- 用户 ID
      * ARGV[2]       -- 博客 ID
@@ -16,8 +18,8 @@ public class RedisLuaScriptConstant {
      * 1: 操作成功
      */
     public static final RedisScript<Long> THUMB_SCRIPT = new DefaultRedisScript<>("""
-            local tempThumbKey = KEYS[1]       -- 临时计数键（如 thumb:temp:{timeSlice}）
-            local userThumbKey = KEYS[2]       -- 用户点赞状态键（如 thumb:{userId}）
+            local tempThumbKey = KEYS[1]       -- 临时计数键（如 {thumb:123}:temp:11:20:20）
+            local userThumbKey = KEYS[2]       -- 用户点赞状态键（如 thumb:123）
             local userId = ARGV[1]             -- 用户 ID
             local blogId = ARGV[2]             -- 博客 ID
             
@@ -48,8 +50,8 @@ public class RedisLuaScriptConstant {
      * 1: 操作成功
      */
     public static final RedisScript<Long> UNTHUMB_SCRIPT = new DefaultRedisScript<>("""
-            local tempThumbKey = KEYS[1]      -- 临时计数键（如 thumb:temp:{timeSlice}）
-            local userThumbKey = KEYS[2]      -- 用户点赞状态键（如 thumb:{userId}）
+            local tempThumbKey = KEYS[1]      -- 临时计数键（如 {thumb:123}:temp:11:20:20）
+            local userThumbKey = KEYS[2]      -- 用户点赞状态键（如 thumb:123）
             local userId = ARGV[1]            -- 用户 ID
             local blogId = ARGV[2]            -- 博客 ID
             
@@ -72,48 +74,249 @@ public class RedisLuaScriptConstant {
             return 1  -- 返回 1 表示成功
             """, Long.class);
 
+    /**
+     * 冷热分层的 Lua 函数，供下面的 MQ 模式脚本共用
+     * 开启空闲过期后，用户点赞数据每次访问都会刷新过期时间，同时写入该用户的冷数据标记（不过期）；
+     * 数据不在 Redis 而标记存在，说明数据因空闲过期，需要先从数据库加载，脚本返回 -2。
+     * 脚本删空用户数据时删除标记，此时 Redis 中的数据是完整的，没有数据就是没有点赞。
+     * 标记没有过期时间，点赞过的用户各保留一个标记，见 ThumbStorageProperties.idleTtl。
+     * 标记与用户点赞键使用同一个 hash tag，在 Redis Cluster 中位于同一个 slot
+     */
+    private static final String THUMB_TIERING_FUNCTIONS = """
+            local function isCold(coldKey)
+                return redis.call('EXISTS', coldKey) == 1
+            end
+
+            local function touch(key, coldKey, ttl)
+                if redis.call('EXISTS', key) == 0 then
+                    redis.call('DEL', coldKey)
+                elseif tonumber(ttl) > 0 then
+                    redis.call('EXPIRE', key, ttl)
+                    if redis.call('EXISTS', coldKey) == 0 then
+                        redis.call('SET', coldKey, 1)
+                    end
+                end
+            end
+            """;
+
     /**
      * 点赞 Lua 脚本
      * KEYS[1]       -- 用户点赞状态键
+     * KEYS[2]       -- 冷数据标记键
      * ARGV[1]       -- 博客 ID
+     * ARGV[2]       -- 空闲过期时间（秒），0 表示不过期
      * 返回:
+     * -2: 数据已过期，需要从数据库加载
      * -1: 已点赞
      * 1: 操作成功
      */
-    public static final RedisScript<Long> THUMB_SCRIPT_MQ = new DefaultRedisScript<>("""  
-                    local userThumbKey = KEYS[1]  
-                    local blogId = ARGV[1]  
-            
-                    -- 判断是否已经点赞  
-                    if redis.call("HEXISTS", userThumbKey, blogId) == 1 then  
-                        return -1  
-                    end  
-            
-                    -- 添加点赞记录  
-                    redis.call("HSET", userThumbKey, blogId, 1)  
-                    return 1  
+    public static final RedisScript<Long> THUMB_SCRIPT_MQ = new DefaultRedisScript<>(THUMB_TIERING_FUNCTIONS + """
+            local userThumbKey = KEYS[1]
+            local blogId = ARGV[1]
+
+            if redis.call('EXISTS', userThumbKey) == 0 and isCold(KEYS[2]) then
+                return -2
+            end
+
+            -- 判断是否已经点赞
+            if redis.call('HEXISTS', userThumbKey, blogId) == 1 then
+                return -1
+            end
+
+            -- 添加点赞记录
+            redis.call('HSET', userThumbKey, blogId, 1)
+            touch(userThumbKey, KEYS[2], ARGV[2])
+            return 1
             """, Long.class);
 
     /**
      * 取消点赞 Lua 脚本
-     * KEYS[1]       -- 用户点赞状态键
-     * ARGV[1]       -- 博客 ID
+     * 参数同上
      * 返回:
-     * -1: 已点赞
+     * -2: 数据已过期，需要从数据库加载
+     * -1: 未点赞
      * 1: 操作成功
      */
-    public static final RedisScript<Long> UNTHUMB_SCRIPT_MQ = new DefaultRedisScript<>("""  
-            local userThumbKey = KEYS[1]  
-            local blogId = ARGV[1]  
-            
-            -- 判断是否已点赞  
-            if redis.call("HEXISTS", userThumbKey, blogId) == 0 then  
-                return -1  
-            end  
-            
-            -- 删除点赞记录  
-            redis.call("HDEL", userThumbKey, blogId)  
-            return 1  
+    public static final RedisScript<Long> UNTHUMB_SCRIPT_MQ = new DefaultRedisScript<>(THUMB_TIERING_FUNCTIONS + """
+            local userThumbKey = KEYS[1]
+            local blogId = ARGV[1]
+
+            if redis.call('EXISTS', userThumbKey) == 0 and isCold(KEYS[2]) then
+                return -2
+            end
+
+            -- 判断是否已点赞
+            if redis.call('HEXISTS', userThumbKey, blogId) == 0 then
+                return -1
+            end
+
+            -- 删除点赞记录
+            redis.call('HDEL', userThumbKey, blogId)
+            touch(userThumbKey, KEYS[2], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * 批量判断是否点赞
+     * KEYS[1]       -- 用户点赞状态键
+     * KEYS[2]       -- 冷数据标记键
+     * ARGV[1]       -- 空闲过期时间（秒）
+     * ARGV[2...]    -- 博客 ID 列表
+     * 返回: 第一个元素为 -2（需要从数据库加载）或 1，之后是与博客 ID 对应的 1（已点赞）或 0
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> HAS_THUMB_SCRIPT_MQ = new DefaultRedisScript<>(THUMB_TIERING_FUNCTIONS + """
+            local userThumbKey = KEYS[1]
+            if redis.call('EXISTS', userThumbKey) == 0 and isCold(KEYS[2]) then
+                return {-2}
+            end
+            local result = {1}
+            for i = 2, #ARGV do
+                result[#result + 1] = redis.call('HEXISTS', userThumbKey, ARGV[i])
+            end
+            touch(userThumbKey, KEYS[2], ARGV[1])
+            return result
+            """, List.class);
+
+    /**
+     * 从数据库加载的点赞记录写回 Redis
+     * KEYS、ARGV[1] 同上
+     * ARGV[2...]    -- 用户点赞过的博客 ID
+     * 返回: 写入的博客数，数据已被其他请求加载时返回 0
+     */
+    public static final RedisScript<Long> LOAD_THUMB_SCRIPT_MQ = new DefaultRedisScript<>(THUMB_TIERING_FUNCTIONS + """
+            local userThumbKey = KEYS[1]
+            if redis.call('EXISTS', userThumbKey) == 1 then
+                return 0
+            end
+            for i = 2, #ARGV do
+                redis.call('HSET', userThumbKey, ARGV[i], 1)
+            end
+            touch(userThumbKey, KEYS[2], ARGV[1])
+            return #ARGV - 1
+            """, Long.class);
+
+    /**
+     * 旧的 hash 结构迁移到 set 的 Lua 函数，供下面的 set 脚本共用
+     * 所有 set 脚本的 KEYS[1] 为 set 结构的用户点赞键，KEYS[2] 为旧的 hash 结构的用户点赞键，KEYS[3] 为冷数据标记键，三者在同一个 slot，
+     * 执行前先把 hash 中的博客 ID 并入 set 并删除 hash，未迁移的用户在第一次访问时完成迁移
+     */
+    private static final String MIGRATE_THUMB_HASH_FUNCTION = THUMB_TIERING_FUNCTIONS + """
+            local function migrateThumbHash(setKey, hashKey)
+                local blogIds = redis.call('HKEYS', hashKey)
+                -- unpack 的参数个数有限制，分批写入
+                for i = 1, #blogIds, 1000 do
+                    redis.call('SADD', setKey, unpack(blogIds, i, math.min(i + 999, #blogIds)))
+                end
+                if #blogIds > 0 then
+                    redis.call('DEL', hashKey)
+                end
+                return #blogIds
+            end
+            """;
+
+    /**
+     * set 结构的点赞 Lua 脚本
+     * KEYS[1]       -- 用户点赞 set 键
+     * KEYS[2]       -- 旧的用户点赞 hash 键
+     * KEYS[3]       -- 冷数据标记键
+     * ARGV          -- 同 THUMB_SCRIPT_MQ
+     * 返回: 同 THUMB_SCRIPT_MQ
+     */
+    public static final RedisScript<Long> THUMB_SET_SCRIPT_MQ = new DefaultRedisScript<>(MIGRATE_THUMB_HASH_FUNCTION + """
+            migrateThumbHash(KEYS[1], KEYS[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 and isCold(KEYS[3]) then
+                return -2
+            end
+            if redis.call('SADD', KEYS[1], ARGV[1]) == 0 then
+                return -1
+            end
+            touch(KEYS[1], KEYS[3], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * set 结构的取消点赞 Lua 脚本
+     * 参数同上
+     * 返回: 同 UNTHUMB_SCRIPT_MQ
+     */
+    public static final RedisScript<Long> UNTHUMB_SET_SCRIPT_MQ = new DefaultRedisScript<>(MIGRATE_THUMB_HASH_FUNCTION + """
+            migrateThumbHash(KEYS[1], KEYS[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 and isCold(KEYS[3]) then
+                return -2
+            end
+            if redis.call('SREM', KEYS[1], ARGV[1]) == 0 then
+                return -1
+            end
+            touch(KEYS[1], KEYS[3], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * set 结构的批量判断是否点赞，需要 Redis 6.2+（SMISMEMBER）
+     * KEYS 同上
+     * ARGV          -- 同 HAS_THUMB_SCRIPT_MQ
+     * 返回: 同 HAS_THUMB_SCRIPT_MQ
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> HAS_THUMB_SET_SCRIPT = new DefaultRedisScript<>(MIGRATE_THUMB_HASH_FUNCTION + """
+            migrateThumbHash(KEYS[1], KEYS[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 and isCold(KEYS[3]) then
+                return {-2}
+            end
+            local result = {1}
+            if #ARGV > 1 then
+                local members = redis.call('SMISMEMBER', KEYS[1], unpack(ARGV, 2))
+                for i = 1, #members do
+                    result[#result + 1] = members[i]
+                end
+            end
+            touch(KEYS[1], KEYS[3], ARGV[1])
+            return result
+            """, List.class);
+
+    /**
+     * 从数据库加载的点赞记录写回 set
+     * KEYS 同上
+     * ARGV          -- 同 LOAD_THUMB_SCRIPT_MQ
+     * 返回: 同 LOAD_THUMB_SCRIPT_MQ
+     */
+    public static final RedisScript<Long> LOAD_THUMB_SET_SCRIPT = new DefaultRedisScript<>(MIGRATE_THUMB_HASH_FUNCTION + """
+            if redis.call('EXISTS', KEYS[1]) == 1 or redis.call('EXISTS', KEYS[2]) == 1 then
+                return 0
+            end
+            for i = 2, #ARGV, 1000 do
+                redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+            end
+            touch(KEYS[1], KEYS[3], ARGV[1])
+            return #ARGV - 1
+            """, Long.class);
+
+    /**
+     * hash 结构迁移到 set
+     * KEYS 同上
+     * ARGV[1]       -- 空闲过期时间（秒）
+     * 返回: 迁移的博客数
+     */
+    public static final RedisScript<Long> MIGRATE_THUMB_SCRIPT = new DefaultRedisScript<>(MIGRATE_THUMB_HASH_FUNCTION + """
+            local migrated = migrateThumbHash(KEYS[1], KEYS[2])
+            touch(KEYS[1], KEYS[3], ARGV[1])
+            return migrated
+            """, Long.class);
+
+    /**
+     * 为没有过期时间的用户点赞数据设置空闲过期时间，hash 和 set 结构通用
+     * KEYS[1]       -- 用户点赞键
+     * KEYS[2]       -- 冷数据标记键
+     * ARGV[1]       -- 空闲过期时间（秒）
+     * 返回: 1 已设置，0 未设置
+     */
+    public static final RedisScript<Long> EXPIRE_THUMB_SCRIPT = new DefaultRedisScript<>(THUMB_TIERING_FUNCTIONS + """
+            if redis.call('TTL', KEYS[1]) ~= -1 then
+                return 0
+            end
+            touch(KEYS[1], KEYS[2], ARGV[1])
+            return 1
             """, Long.class);
 
 }
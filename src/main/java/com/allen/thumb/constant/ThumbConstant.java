@@ -7,14 +7,46 @@ public interface ThumbConstant {
 
     /**
      * 用户点赞 hash key
+     * key 中没有 hash tag，整个 key 参与 slot 计算，本地缓存和失效广播都按这个格式解析，保持不变
      */
     String USER_THUMB_KEY_PREFIX = "thumb:";
 
+    /**
+     * 与用户点赞 key 在同一个 Lua 脚本中访问的 key，都以 {thumb:userId} 作为 hash tag，
+     * 与 thumb:{userId} 落在 Redis Cluster 的同一个 slot，%s 为 userId
+     */
+    String USER_THUMB_HASH_TAG = "{thumb:%s}";
+
+    /**
+     * 用户点赞 set key，thumb.storage.layout 为 SET 时使用
+     */
+    String USER_THUMB_SET_KEY = USER_THUMB_HASH_TAG + ":set";
+
+    /**
+     * 用户点赞数据设置了空闲过期时间的标记，数据不在而标记存在说明已过期，需要从数据库加载
+     */
+    String USER_THUMB_COLD_KEY = USER_THUMB_HASH_TAG + ":cold";
+
     Long UN_THUMB_CONSTANT = 0L;
 
     /**
-     * 临时 点赞记录 key
+     * MQ 模式下 Redis 中的点赞标记，与 Lua 脚本写入的值一致，点赞记录 id 由消费者落库时生成
+     */
+    Long MQ_THUMB_CONSTANT = 1L;
+
+    /**
+     * 临时 点赞记录 key，按用户拆分，与用户点赞 key 在同一个 slot，第一个 %s 为 userId，第二个为时间片
+     */
+    String TEMP_THUMB_KEY = USER_THUMB_HASH_TAG + ":temp:%s";
+
+    /**
+     * 某个时间片有临时点赞记录的用户 set，%s 为时间片，供同步任务定位按用户拆分的 key
+     */
+    String TEMP_THUMB_USERS_KEY = "thumb:tempusers:%s";
+
+    /**
+     * 按用户拆分之前的临时点赞记录 key，%s 为时间片，升级后由补偿任务同步剩余数据
      */
-    String TEMP_THUMB_KEY_PREFIX = "thumb:temp:%s";
+    String LEGACY_TEMP_THUMB_KEY = "thumb:temp:%s";
 
 }
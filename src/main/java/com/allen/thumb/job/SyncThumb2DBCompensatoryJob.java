@@ -1,17 +1,21 @@
 package com.allen.thumb.job;
 
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.util.ObjUtil;
 import com.allen.thumb.constant.ThumbConstant;
 import com.allen.thumb.util.RedisKeyUtil;
+import com.allen.thumb.util.RedisScanUtil;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * 定时将 Redis 中的临时点赞数据同步到数据库的补偿措施
@@ -20,6 +24,10 @@ import java.util.Set;
 @Slf4j
 public class SyncThumb2DBCompensatoryJob {
 
+    // {thumb:userId}:temp:date 中 userId 与 date 之间的部分
+    private static final String TEMP_THUMB_KEY_SEPARATOR = ThumbConstant.TEMP_THUMB_KEY.substring(
+            ThumbConstant.TEMP_THUMB_KEY.indexOf("%s") + 2, ThumbConstant.TEMP_THUMB_KEY.lastIndexOf("%s"));
+
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -33,23 +41,30 @@ public class SyncThumb2DBCompensatoryJob {
     @Scheduled(cron = "0 0 2 * * *")
     public void run() {
         log.info("开始补偿数据");
-        // 获取所有临时点赞数据的键
-        Set<String> thumbKeys = redisTemplate.keys(RedisKeyUtil.getTempThumbKey("") + "*");
-        Set<String> needHandleDataSet = new HashSet<>();
-        if (thumbKeys != null) {
-            // 过滤非空键，并提取日期部分作为需要处理的数据集合
-            thumbKeys.stream().filter(ObjUtil::isNotNull).forEach(thumbKey ->
-                    needHandleDataSet.add(thumbKey.replace(ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(""), "")));
-        }
+        // 逐个节点获取所有临时点赞数据的键，按日期分组
+        Map<String, Set<String>> needHandleDataMap = new HashMap<>();
+        scan(RedisKeyUtil.getTempThumbKeyPattern(), key -> {
+            String date = key.substring(key.indexOf(TEMP_THUMB_KEY_SEPARATOR) + TEMP_THUMB_KEY_SEPARATOR.length());
+            needHandleDataMap.computeIfAbsent(date, k -> new HashSet<>()).add(key);
+        });
+        // 按用户拆分之前的键和时间片的用户 set 由同步任务自行处理，只需要日期
+        String legacyPrefix = RedisKeyUtil.getLegacyTempThumbKey("");
+        scan(legacyPrefix + "*", key ->
+                needHandleDataMap.computeIfAbsent(key.substring(legacyPrefix.length()), k -> new HashSet<>()));
+        String usersPrefix = RedisKeyUtil.getTempThumbUsersKey("");
+        scan(usersPrefix + "*", key ->
+                needHandleDataMap.computeIfAbsent(key.substring(usersPrefix.length()), k -> new HashSet<>()));
         // 如果没有需要补偿的临时数据，则记录日志并退出
-        if (CollUtil.isEmpty(needHandleDataSet)) {
+        if (CollUtil.isEmpty(needHandleDataMap)) {
             log.info("没有需要补偿的临时数据");
             return;
         }
         // 补偿数据  
-        for (String date : needHandleDataSet) {
-            syncThumb2DBJob.syncThumb2DBByDate(date);
-        }
+        needHandleDataMap.forEach(syncThumb2DBJob::syncThumb2DBByDate);
         log.info("临时数据补偿完成");
     }
+
+    private void scan(String pattern, Consumer<String> action) {
+        RedisScanUtil.scan(redisTemplate, ScanOptions.scanOptions().match(pattern).count(1000).build(), action);
+    }
 }
@@ -17,8 +17,12 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 定时将 Redis 中的临时点赞数据同步到数据库
@@ -53,15 +57,43 @@ public class SyncThumb2DBJob {
      * @param date 日期字符串，用于构建Redis中临时点赞数据的键
      */
     public void syncThumb2DBByDate(String date) {
+        syncThumb2DBByDate(date, List.of());
+    }
+
+    /**
+     * 根据日期同步Redis中的临时点赞数据到数据库
+     * 临时数据按用户拆分在各自的 slot，由该时间片的用户 set 找到所有 key，连同拆分之前的 key 一起处理
+     * @param date 日期字符串，用于构建Redis中临时点赞数据的键
+     * @param extraTempThumbKeys 补偿任务扫描到的、用户 set 中可能缺失的 key
+     */
+    public void syncThumb2DBByDate(String date, Collection<String> extraTempThumbKeys) {
         // 获取到临时点赞和取消点赞数据
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(date);
-        Map<Object, Object> allTempThumbMap = redisTemplate.opsForHash().entries(tempThumbKey);
+        String tempThumbUsersKey = RedisKeyUtil.getTempThumbUsersKey(date);
+        Set<String> tempThumbKeys = new HashSet<>(extraTempThumbKeys);
+        Set<Object> userIds = redisTemplate.opsForSet().members(tempThumbUsersKey);
+        if (userIds != null) {
+            for (Object userId : userIds) {
+                tempThumbKeys.add(RedisKeyUtil.getTempThumbKey(Long.valueOf(userId.toString()), date));
+            }
+        }
+        tempThumbKeys.add(RedisKeyUtil.getLegacyTempThumbKey(date));
+        Map<Object, Object> allTempThumbMap = new HashMap<>();
+        for (String tempThumbKey : tempThumbKeys) {
+            // 升级期间同一个用户可能同时写入新旧两种 key，计数相加
+            redisTemplate.opsForHash().entries(tempThumbKey).forEach((userIdBlogId, number) ->
+                    allTempThumbMap.merge(userIdBlogId, number,
+                            (a, b) -> Integer.parseInt(a.toString()) + Integer.parseInt(b.toString())));
+        }
         boolean thumbMapEmpty = CollUtil.isEmpty(allTempThumbMap);
 
         // 同步 点赞 到数据库
         // 构建插入列表并收集blogId
         Map<Long, Long> blogThumbCountMap = new HashMap<>();
         if (thumbMapEmpty) {
+            // 登记了用户但脚本没有执行成功
+            if (CollUtil.isNotEmpty(userIds)) {
+                redisTemplate.delete(tempThumbUsersKey);
+            }
             return;
         }
         ArrayList<Thumb> thumbList = new ArrayList<>();
@@ -102,7 +134,8 @@ public class SyncThumb2DBJob {
         if (!blogThumbCountMap.isEmpty()) {
             blogMapper.batchUpdateThumbCount(blogThumbCountMap);
         }
-        // 异步删除Redis中的临时点赞数据
-        Thread.startVirtualThread(() -> redisTemplate.delete(tempThumbKey));
+        // 异步删除Redis中的临时点赞数据，集群下按 slot 分别删除
+        tempThumbKeys.add(tempThumbUsersKey);
+        Thread.startVirtualThread(() -> redisTemplate.delete(tempThumbKeys));
     }
 }
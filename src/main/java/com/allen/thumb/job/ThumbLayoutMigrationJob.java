@@ -0,0 +1,38 @@
+package com.allen.thumb.job;
+
+import com.allen.thumb.manager.thumb.UserThumbStore;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户点赞改用 set 结构后，把剩余的 hash 迁移过去；开启空闲过期后，为之前写入的用户数据补上过期时间
+ * 活跃用户在下次点赞或查询时已由 Lua 脚本处理，这里处理不活跃的用户
+ *
+ * @author KiveAllen
+ */
+@Component
+@Slf4j
+public class ThumbLayoutMigrationJob {
+
+    @Resource
+    private UserThumbStore userThumbStore;
+
+    /**
+     * 每天凌晨3点执行，避开 2 点的对账任务
+     */
+    @Scheduled(cron = "0 0 3 * * *")
+    public void run() {
+        if (userThumbStore.isSetLayout()) {
+            long startTime = System.currentTimeMillis();
+            long migrated = userThumbStore.migrateAll();
+            log.info("点赞记录迁移到 set 结构完成，迁移 {} 个用户，耗时 {}ms", migrated, System.currentTimeMillis() - startTime);
+        }
+        if (userThumbStore.isTiered()) {
+            long startTime = System.currentTimeMillis();
+            long expired = userThumbStore.expireAll();
+            log.info("点赞记录设置空闲过期完成，设置 {} 个用户，耗时 {}ms", expired, System.currentTimeMillis() - startTime);
+        }
+    }
+}
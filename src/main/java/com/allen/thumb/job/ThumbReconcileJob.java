@@ -1,15 +1,12 @@
 package com.allen.thumb.job;
 
-import com.allen.thumb.constant.ThumbConstant;
 import com.allen.thumb.listener.thumb.msg.ThumbEvent;
+import com.allen.thumb.manager.thumb.UserThumbStore;
 import com.allen.thumb.model.entity.Thumb;
 import com.allen.thumb.service.ThumbService;
 import com.google.common.collect.Sets;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.Cursor;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.pulsar.core.PulsarTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -25,7 +22,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ThumbReconcileJob {
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private UserThumbStore userThumbStore;
 
     @Resource
     private ThumbService thumbService;
@@ -42,18 +39,12 @@ public class ThumbReconcileJob {
 
         // 1. 获取该分片下的所有用户ID  
         Set<Long> userIds = new HashSet<>();
-        String pattern = ThumbConstant.USER_THUMB_KEY_PREFIX + "*";
-        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(1000).build())) {
-            while (cursor.hasNext()) {
-                String key = cursor.next();
-                Long userId = Long.valueOf(key.replace(ThumbConstant.USER_THUMB_KEY_PREFIX, ""));
-                userIds.add(userId);
-            }
-        }
+        userThumbStore.forEachUserId(userIds::add);
 
         // 2. 逐用户比对  
         userIds.forEach(userId -> {
-            Set<Long> redisBlogIds = redisTemplate.opsForHash().keys(ThumbConstant.USER_THUMB_KEY_PREFIX + userId).stream().map(obj -> Long.valueOf(obj.toString())).collect(Collectors.toSet());
+            // 只读现有数据，对账不刷新空闲过期时间
+            Set<Long> redisBlogIds = userThumbStore.storedBlogIds(userId);
             Set<Long> mysqlBlogIds = Optional.ofNullable(thumbService.lambdaQuery()
                             .eq(Thumb::getUserId, userId)
                             .list()
@@ -2,6 +2,7 @@ package com.allen.thumb.listener.thumb;
 
 import cn.hutool.core.lang.Pair;
 import com.allen.thumb.listener.thumb.msg.ThumbEvent;
+import com.allen.thumb.manager.cache.CacheManager;
 import com.allen.thumb.mapper.BlogMapper;
 import com.allen.thumb.model.entity.Thumb;
 import com.allen.thumb.service.ThumbService;
@@ -28,6 +29,7 @@ public class ThumbConsumer {
 
     private final BlogMapper blogMapper;
     private final ThumbService thumbService;
+    private final CacheManager cacheManager;
 
     @PulsarListener(topics = "thumb-dlq-topic")
     public void consumerDlq(Message<ThumbEvent> message) {
@@ -112,6 +114,13 @@ public class ThumbConsumer {
         }
         batchUpdateBlogs(countMap);
         batchInsertThumbs(thumbs);
+
+        // 按博客聚合本批次的事件数，一次性计入热 Key 检测
+        Map<String, Integer> blogAccesses = new HashMap<>();
+        for (ThumbEvent event : events) {
+            blogAccesses.merge(event.getBlogId().toString(), 1, Integer::sum);
+        }
+        cacheManager.recordAccess(blogAccesses);
     }
 
     public void batchUpdateBlogs(Map<Long, Long> countMap) {
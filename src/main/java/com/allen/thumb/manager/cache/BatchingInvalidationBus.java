@@ -0,0 +1,108 @@
+package com.allen.thumb.manager.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 批量发送的失效广播
+ * <p>
+ * publish 只把 key 放进待发送集合，同一个 key 在发送前重复发布只保留一份；
+ * 后台线程按固定间隔发送，待发送的 key 达到批量上限时立即发送。
+ * 子类只需实现一批 key 的实际发送方式，收到其他节点的失效后调用 {@link #deliver(Set)}。
+ *
+ * @author KiveAllen
+ */
+@Slf4j
+public abstract class BatchingInvalidationBus implements InvalidationBus {
+
+    // 待发送的 key
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final List<Consumer<Set<String>>> handlers = new CopyOnWriteArrayList<>();
+
+    // 单线程发送，保证同一时刻只有一次 flush
+    private final ScheduledExecutorService flusher;
+
+    private final int maxBatchSize;
+
+    protected BatchingInvalidationBus(Duration flushInterval, int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("cache-invalidation-flusher").daemon().factory());
+        long interval = Math.max(1, flushInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void publish(String key) {
+        if (pending.add(key) && pending.size() >= maxBatchSize) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // 已关闭，剩余的失效由本地缓存过期兜底
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Set<String>> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 发送一批 key
+     */
+    protected abstract void send(Set<String> keys);
+
+    /**
+     * 把其他节点发来的失效交给本节点的处理器
+     */
+    protected void deliver(Set<String> keys) {
+        for (Consumer<Set<String>> handler : handlers) {
+            try {
+                handler.accept(keys);
+            } catch (Exception e) {
+                log.error("本地缓存失效处理失败 {}", keys, e);
+            }
+        }
+    }
+
+    private void flush() {
+        while (!pending.isEmpty()) {
+            Set<String> batch = new HashSet<>();
+            Iterator<String> iterator = pending.iterator();
+            while (iterator.hasNext() && batch.size() < maxBatchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            try {
+                send(batch);
+            } catch (Exception e) {
+                log.warn("本地缓存失效广播发送失败，{} 个 key 由过期时间兜底", batch.size(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.allen.thumb.manager.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * long 元素的布隆过滤器
+ * <p>
+ * 位数组和哈希函数个数按预期元素数和误判率计算，k 个位置由两个哈希值线性组合得到（double hashing）。
+ * 写入用 CAS 置位，可以和查询并发执行；不支持删除。
+ *
+ * @author KiveAllen
+ */
+final class BloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final long[] words;
+    // 位数
+    private final long bits;
+    // 哈希函数个数
+    private final int hashes;
+    // 预期元素数
+    private final int capacity;
+
+    BloomFilter(int capacity, double fpp) {
+        if (capacity <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("capacity 必须大于 0，fpp 必须在 (0, 1) 之间");
+        }
+        long bits = Math.max(64, (long) Math.ceil(-capacity * Math.log(fpp) / LN2_SQUARED));
+        this.words = new long[(int) ((bits + 63) >>> 6)];
+        this.bits = (long) words.length << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) this.bits / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    void add(long value) {
+        long hash1 = BucketTable.mix64(value);
+        long hash2 = BucketTable.mix64(hash1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long index = Long.remainderUnsigned(hash1 + i * hash2, bits);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = (long) WORDS.getVolatile(words, word);
+            while ((current & mask) == 0) {
+                long witness = (long) WORDS.compareAndExchange(words, word, current, current | mask);
+                if (witness == current) {
+                    break;
+                }
+                current = witness;
+            }
+        }
+    }
+
+    boolean mightContain(long value) {
+        long hash1 = BucketTable.mix64(value);
+        long hash2 = BucketTable.mix64(hash1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long index = Long.remainderUnsigned(hash1 + i * hash2, bits);
+            if (((long) WORDS.getAcquire(words, (int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long bytes() {
+        return (long) words.length * Long.BYTES;
+    }
+}
@@ -0,0 +1,270 @@
+package com.allen.thumb.manager.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HeavyKeeper 的桶表
+ * <p>
+ * 用一个 long[] 代替 Bucket[][] 对象网格：每个槽位高 32 位存指纹、低 32 位存计数，
+ * 同一行的槽位连续排布，8 个槽位正好占满一条缓存行。槽位更新全部走 CAS，不再加锁。
+ * 每一行使用独立的种子计算列号，保证不同行落在不同的列上。
+ *
+ * @author KiveAllen
+ */
+final class BucketTable {
+
+    // 衰减查找表大小
+    private static final int LOOKUP_TABLE_SIZE = 256;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    // 宽度，即每一行的桶数量
+    private final int width;
+    // 深度，即桶的行数
+    private final int depth;
+    // 槽位数组，按行连续存放，下标为 row * width + column
+    private final long[] slots;
+    // 每一行的哈希种子
+    private final long[] seeds;
+    // 查找表，用于存储衰减因子
+    private final double[] lookupTable;
+    // 指纹冲突的增量单位数，只在冲突分支累加，不影响命中路径
+    private final LongAdder collisions = new LongAdder();
+    // 原有元素被挤出、桶被新元素接管的累计次数
+    private final LongAdder replacements = new LongAdder();
+
+    BucketTable(int width, int depth, double decay) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("width 和 depth 必须大于 0");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.slots = new long[Math.multiplyExact(width, depth)];
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = mix64(0x9E3779B97F4A7C15L * (i + 1));
+        }
+        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = Math.pow(decay, i);
+        }
+    }
+
+    /**
+     * 将元素计入每一行的桶
+     *
+     * @param hash      元素的 64 位哈希
+     * @param increment 计数增量
+     * @return 各行中属于该元素的最大计数
+     */
+    int add(long hash, int increment) {
+        int fingerprint = fingerprint(hash);
+        int maxCount = 0;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, row);
+            maxCount = Math.max(maxCount, addToSlot(index, fingerprint, increment));
+        }
+        return maxCount;
+    }
+
+    /**
+     * 查询元素当前的估计计数（不修改桶）
+     */
+    int query(long hash) {
+        int fingerprint = fingerprint(hash);
+        int maxCount = 0;
+        for (int row = 0; row < depth; row++) {
+            long slot = (long) SLOTS.getAcquire(slots, row * width + column(hash, row));
+            if (fingerprintOf(slot) == fingerprint) {
+                maxCount = Math.max(maxCount, countOf(slot));
+            }
+        }
+        return maxCount;
+    }
+
+    /**
+     * 所有桶的计数减半
+     *
+     * @return 减半前计数不为 0 的槽位数
+     */
+    int fading() {
+        int occupied = 0;
+        for (int i = 0; i < slots.length; i++) {
+            long current;
+            do {
+                current = (long) SLOTS.getAcquire(slots, i);
+                if (countOf(current) == 0) {
+                    break;
+                }
+            } while (!SLOTS.compareAndSet(slots, i, current, pack(fingerprintOf(current), countOf(current) >> 1)));
+            if (countOf(current) != 0) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * 计数不为 0 的槽位数
+     */
+    int occupied() {
+        int occupied = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (countOf((long) SLOTS.getAcquire(slots, i)) != 0) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * 取出并清零上次调用以来遇到指纹冲突的增量单位数
+     */
+    long drainCollisions() {
+        return collisions.sumThenReset();
+    }
+
+    long replacements() {
+        return replacements.sum();
+    }
+
+    /**
+     * 清空所有桶
+     */
+    void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            SLOTS.setRelease(slots, i, 0L);
+        }
+    }
+
+    long bytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    int slots() {
+        return slots.length;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    private int addToSlot(int index, int fingerprint, int increment) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long current = (long) SLOTS.getAcquire(slots, index);
+            boolean collided = false;
+            boolean replaced = false;
+            int count = countOf(current);
+            int result;
+            long next;
+            if (count == 0) {
+                result = increment;
+                next = pack(fingerprint, increment);
+            } else if (fingerprintOf(current) == fingerprint) {
+                result = saturatedAdd(count, increment);
+                next = pack(fingerprint, result);
+            } else {
+                // 指纹冲突，每个单位增量以 decay^count 的概率让原有计数减一。
+                // 计数不变时，下一次衰减前经历的次数服从几何分布，直接按闭式采样，
+                // 循环次数只与衰减次数有关，与增量大小无关
+                collided = true;
+                result = 0;
+                int remaining = count;
+                long left = increment;
+                while (true) {
+                    double decay = remaining < LOOKUP_TABLE_SIZE ?
+                            lookupTable[remaining] :
+                            lookupTable[LOOKUP_TABLE_SIZE - 1];
+                    long trials = geometric(random, decay);
+                    if (trials > left) {
+                        break;
+                    }
+                    left -= trials;
+                    if (--remaining == 0) {
+                        break;
+                    }
+                }
+                if (remaining == 0) {
+                    // 原有元素被挤出，使其归零的那次增量和剩余增量归新元素所有
+                    result = (int) left + 1;
+                    next = pack(fingerprint, result);
+                    replaced = true;
+                } else {
+                    next = pack(fingerprintOf(current), remaining);
+                }
+            }
+            if (current == next || SLOTS.compareAndSet(slots, index, current, next)) {
+                if (collided) {
+                    // 按增量计数，与 SketchStats 中按单位增量计算的分母口径一致
+                    collisions.add(increment);
+                }
+                if (replaced) {
+                    replacements.increment();
+                }
+                return result;
+            }
+        }
+    }
+
+    /**
+     * 采样成功概率为 p 的伯努利试验中，第一次成功所需的试验次数（含成功那次）。
+     * 由 P(T > t) = (1 - p)^t 反解得 T = 1 + floor(ln U / ln(1 - p))，U 在 (0, 1] 上均匀分布
+     */
+    private static long geometric(ThreadLocalRandom random, double p) {
+        if (p >= 1.0) {
+            return 1;
+        }
+        if (p <= 0.0) {
+            return Long.MAX_VALUE;
+        }
+        double u = 1.0 - random.nextDouble();
+        double trials = Math.floor(Math.log(u) / Math.log1p(-p));
+        return trials >= Long.MAX_VALUE - 1 ? Long.MAX_VALUE : 1 + (long) trials;
+    }
+
+    private int column(long hash, int row) {
+        long mixed = mix64(hash ^ seeds[row]);
+        // 用乘法取高位代替取模，把 [0, 2^32) 映射到 [0, width)
+        return (int) (((mixed >>> 32) * width) >>> 32);
+    }
+
+    private static int fingerprint(long hash) {
+        return (int) (hash >>> 32) ^ (int) hash;
+    }
+
+    private static int saturatedAdd(int count, int increment) {
+        long sum = (long) count + increment;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    private static long pack(int fingerprint, int count) {
+        return ((long) fingerprint << 32) | (count & COUNT_MASK);
+    }
+
+    private static int fingerprintOf(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    private static int countOf(long slot) {
+        return (int) (slot & COUNT_MASK);
+    }
+
+    /**
+     * SplitMix64 的混淆函数
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,15 +1,32 @@
 package com.allen.thumb.manager.cache;
 
+import com.allen.thumb.config.HotKeyProperties;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 
 /**
  * 缓存类
@@ -20,36 +37,97 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class CacheManager {
 
-    private TopK hotKeyDetector;
+    // 热 Key 检测器，重新配置或自动扩容时整体替换
+    private volatile TopK hotKeyDetector;
 
     private Cache<String, Object> localCache;
 
+    // 堆外的点赞状态缓存，未开启时为 null；热 Key 的点赞状态优先放在这里
+    private OffHeapThumbStore offHeapStore;
+
+    // 本地缓存索引：热 Key -> 以它为字段的复合 key，用于热 Key 退出 TopK 时清理本地缓存
+    private final Map<String, Set<String>> localKeyIndex = new ConcurrentHashMap<>();
+
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
-    @Bean
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private InvalidationBus invalidationBus;
+
+    // Redis 客户端缓存，开启且可用时读取优先走它
+    @Resource
+    private TrackingRedisClient trackingRedisClient;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    // 不按 Redis hash 存储的数据的读取方式
+    @Resource
+    private List<FieldLoader> fieldLoaders;
+
+    // 本地缓存未命中后读取 Redis 的耗时
+    private Timer redisGetTimer;
+
+    private Timer redisGetAllTimer;
+
+    // 本地缓存未命中时合并同一个 key 的并发 Redis 读取
+    private final SingleFlight<String, Object> redisReads = new SingleFlight<>();
+
+    // 失效版本的分段数，2 的幂
+    private static final int INVALIDATION_STRIPES = 4096;
+
+    // 按复合 key 分段的失效版本，读 Redis 期间同一段有失效到达时不把读到的值放进本地缓存，
+    // 其他 key 的失效不影响正在进行的读取
+    private final AtomicLongArray invalidationVersions = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    // 当前检测器使用的参数
+    private DetectorSpec detectorSpec;
+
+    // 上次衰减的时间
+    private long lastFadingNanos = System.nanoTime();
+
+    @PostConstruct
+    public void init() {
+        redisGetTimer = redisTimer("get");
+        redisGetAllTimer = redisTimer("getAll");
+        detectorSpec = DetectorSpec.of(hotKeyProperties);
+        hotKeyDetector = createDetector(detectorSpec);
+        invalidationBus.subscribe(this::invalidateLocal);
+    }
+
     public TopK getHotKeyDetector() {
-        hotKeyDetector = new HeavyKeeper(
-                // 监控 Top 100 Key
-                100,
-                // 哈希表宽度
-                100000,
-                // 哈希表深度
-                5,
-                // 衰减系数
-                0.92,
-                // 最小出现 10 次才记录
-                10
-        );
         return hotKeyDetector;
     }
 
     @Bean
     public Cache<String, Object> localCache() {
-        return localCache = Caffeine.newBuilder()
-                .maximumSize(1000)
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .build();
+        HotKeyProperties.LocalCache config = hotKeyProperties.getLocalCache();
+        Caffeine<String, Object> builder = Caffeine.newBuilder()
+                .expireAfterWrite(config.getExpireAfterWrite())
+                // 命中、未命中和淘汰次数由 CacheMetrics 导出
+                .recordStats()
+                // 容量淘汰和过期时同步清理索引
+                .evictionListener((String key, Object value, RemovalCause cause) -> unindexLocal(key));
+        if (config.getMaximumWeight() != null) {
+            builder.maximumWeight(config.getMaximumWeight().toBytes()).weigher(CacheManager::weigh);
+        } else {
+            builder.maximumSize(config.getMaximumSize());
+        }
+        HotKeyProperties.OffHeap offHeap = config.getOffHeap();
+        if (offHeap.isEnabled()) {
+            offHeapStore = new OffHeapThumbStore(offHeap.getCapacity().toBytes(), offHeap.getSegments(),
+                    config.getExpireAfterWrite());
+        }
+        return localCache = builder.build();
+    }
+
+    // 估算一个条目占用的堆内存：Caffeine 节点 + 复合 key 字符串 + 值
+    static int weigh(String compositeKey, Object value) {
+        int valueBytes = value instanceof Long || value instanceof Integer || value instanceof Boolean ? 16 : 64;
+        return 64 + 40 + compositeKey.length() + valueBytes;
     }
 
     // 辅助方法：构造复合 key
@@ -58,20 +136,42 @@ public class CacheManager {
     }
 
     public Object get(String hashKey, String key) {
+        // 0. 客户端缓存模式：缓存和失效都由 Redis client tracking 负责，仍然记录访问供热 Key 统计使用
+        if (trackingRedisClient.isAvailable() && fieldLoader(hashKey) == null) {
+            try {
+                Object value = trackingRedisClient.hget(hashKey, key);
+                hotKeyDetector.add(key, 1);
+                return value;
+            } catch (Exception e) {
+                trackingRedisClient.suspend(e);
+            }
+        }
+
         // 构造唯一的 composite key
         String compositeKey = buildCacheKey(hashKey, key);
 
         // 1. 先查本地缓存
-        Object value = localCache.getIfPresent(compositeKey);
+        Object value = getLocal(hashKey, key, compositeKey);
         if (value != null) {
-            log.info("本地缓存获取到数据 {} = {}", compositeKey, value);
             // 记录访问次数（每次访问计数 +1）
             hotKeyDetector.add(key, 1);
             return value;
         }
 
-        // 2. 本地缓存未命中，查询 Redis
-        Object redisValue = redisTemplate.opsForHash().get(hashKey, key);
+        // 2. 本地缓存未命中，查询 Redis；同一个 key 并发未命中时只有一个线程访问 Redis
+        SingleFlight.Result<Object> result = redisReads.execute(compositeKey, () -> load(hashKey, key, compositeKey));
+        Object redisValue = result.value();
+        if (redisValue != null && result.shared()) {
+            // 本地缓存已由执行加载的线程写入，这里只记录访问
+            hotKeyDetector.add(key, 1);
+        }
+        return redisValue;
+    }
+
+    // 未命中时从 Redis 加载，热 Key 写入本地缓存
+    private Object load(String hashKey, String key, String compositeKey) {
+        long version = invalidationVersion(compositeKey);
+        Object redisValue = redisGetTimer.record(() -> readField(hashKey, key));
         if (redisValue == null) {
             return null;
         }
@@ -79,26 +179,470 @@ public class CacheManager {
         // 3. 记录访问（计数 +1）
         AddResult addResult = hotKeyDetector.add(key, 1);
 
-        // 4. 如果是热 Key 且不在本地缓存，则缓存数据
-        if (addResult.isHotKey()) {
-            localCache.put(compositeKey, redisValue);
+        // 4. 如果是热 Key 且不在本地缓存，则缓存数据；读取期间收到过失效的，读到的可能是旧值，不缓存
+        if (addResult.isHotKey() && invalidationVersion(compositeKey) == version) {
+            putLocal(hashKey, key, compositeKey, redisValue);
         }
 
         return redisValue;
     }
 
+    /**
+     * 批量读取同一个 hash 的多个字段：本地缓存命中的直接返回，其余字段一次 HMGET 读取，
+     * 读到的字段逐个计入热 Key 检测器，热 Key 字段写入本地缓存
+     * <p>
+     * 客户端缓存模式下逐个字段 HGET：客户端缓存以整条命令为单位，HMGET 的字段组合不同就无法命中，
+     * 逐字段读取与 {@link #get} 共用缓存条目，未命中的字段各需要一次往返。
+     *
+     * @return 字段 -> 值，不存在的字段不包含在内
+     */
+    public Map<String, Object> getAll(String hashKey, Collection<String> fields) {
+        if (trackingRedisClient.isAvailable() && fieldLoader(hashKey) == null) {
+            try {
+                return getAllTracked(hashKey, fields);
+            } catch (Exception e) {
+                trackingRedisClient.suspend(e);
+            }
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String field : fields) {
+            Object value = getLocal(hashKey, field, buildCacheKey(hashKey, field));
+            if (value != null) {
+                values.put(field, value);
+            } else {
+                missing.add(field);
+            }
+        }
+
+        Map<String, Object> loaded = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        if (!missing.isEmpty()) {
+            for (String field : missing) {
+                versions.put(field, invalidationVersion(buildCacheKey(hashKey, field)));
+            }
+            List<Object> redisValues = redisGetAllTimer.record(() -> readFields(hashKey, missing));
+            for (int i = 0; i < missing.size(); i++) {
+                Object value = redisValues.get(i);
+                if (value != null) {
+                    loaded.put(missing.get(i), value);
+                }
+            }
+            values.putAll(loaded);
+        }
+        if (values.isEmpty()) {
+            return values;
+        }
+
+        // 每个字段只计一次，直接逐个写入，不为整批访问再建一份计数 Map；
+        // 已在 TopK 中的字段无锁命中，只有新进入 TopK 的字段加锁
+        for (String field : values.keySet()) {
+            AddResult result = hotKeyDetector.add(field, 1);
+            Object value = loaded.get(field);
+            if (!result.isHotKey() || value == null) {
+                continue;
+            }
+            // 读取期间收到过失效的字段，读到的可能是旧值，不缓存
+            String compositeKey = buildCacheKey(hashKey, field);
+            if (invalidationVersion(compositeKey) == versions.get(field)) {
+                putLocal(hashKey, field, compositeKey, value);
+            }
+        }
+        return values;
+    }
+
+    // 客户端缓存模式：缓存和失效都由 Redis client tracking 负责，只记录访问
+    private Map<String, Object> getAllTracked(String hashKey, Collection<String> fields) {
+        Map<String, Object> values = new HashMap<>();
+        for (String field : fields) {
+            Object value = trackingRedisClient.hget(hashKey, field);
+            if (value != null) {
+                values.put(field, value);
+                hotKeyDetector.add(field, 1);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 堆内本地缓存，供指标导出使用
+     */
+    public Cache<String, Object> getLocalCache() {
+        return localCache;
+    }
+
+    /**
+     * 本地缓存未命中时的 Redis 读取合并情况
+     */
+    public SingleFlight<String, Object> getRedisReads() {
+        return redisReads;
+    }
+
+    /**
+     * Redis 中的值已修改：本地缓存存在时原地更新，并通知其他节点失效
+     */
     public void putIfPresent(String hashKey, String key, Object value) {
         String compositeKey = buildCacheKey(hashKey, key);
-        Object object = localCache.getIfPresent(compositeKey);
-        if (object == null) {
+        bumpInvalidationVersion(compositeKey);
+        redisReads.forget(compositeKey);
+        localCache.asMap().computeIfPresent(compositeKey, (k, v) -> value);
+        if (offHeapStore != null) {
+            offHeapStore.replaceIfPresent(hashKey, key, value);
+        }
+        invalidationBus.publish(compositeKey);
+    }
+
+    /**
+     * Redis 中的值已修改或删除：清理本节点的本地缓存，并通知其他节点失效
+     */
+    public void invalidate(String hashKey, String key) {
+        String compositeKey = buildCacheKey(hashKey, key);
+        bumpInvalidationVersion(compositeKey);
+        redisReads.forget(compositeKey);
+        localCache.invalidate(compositeKey);
+        unindexLocal(compositeKey);
+        if (offHeapStore != null) {
+            offHeapStore.invalidate(hashKey, key);
+        }
+        invalidationBus.publish(compositeKey);
+    }
+
+    /**
+     * 本节点当前的热 Key
+     */
+    public List<Item> hotKeys() {
+        return hotKeyDetector.list();
+    }
+
+    /**
+     * 预热：把其他节点已经识别出的热 Key 计入本地检测器，本地已是热 Key 的跳过
+     *
+     * @param hotKeys key -> 计数
+     */
+    public void prewarm(Map<String, Integer> hotKeys) {
+        Set<String> localHotKeys = new HashSet<>();
+        for (Item item : hotKeyDetector.list()) {
+            localHotKeys.add(item.key());
+        }
+        Map<String, Integer> increments = new HashMap<>();
+        hotKeys.forEach((key, count) -> {
+            if (!localHotKeys.contains(key)) {
+                increments.put(key, count);
+            }
+        });
+        hotKeyDetector.addAll(increments);
+    }
+
+    /**
+     * 批量记录预先聚合好的访问次数，例如一个消费批次内各博客的点赞事件数
+     *
+     * @param accesses key -> 访问次数
+     */
+    public void recordAccess(Map<String, Integer> accesses) {
+        if (!accesses.isEmpty()) {
+            hotKeyDetector.addAll(accesses);
+        }
+    }
+
+    /**
+     * 记录一次博客 ID 等数字 key 的访问，与字符串形式的 key 计入同一个热 Key
+     */
+    public void recordAccess(long key) {
+        hotKeyDetector.add(key, 1);
+    }
+
+    /**
+     * 生成快照：当前热 Key 和本地缓存中的复合 key，复合 key 最多 maxLocalKeys 个
+     */
+    public CacheSnapshot snapshot(int maxLocalKeys) {
+        List<String> localKeys = new ArrayList<>();
+        if (offHeapStore != null) {
+            offHeapStore.forEachKey(maxLocalKeys, localKeys::add);
+        }
+        for (String compositeKey : localCache.asMap().keySet()) {
+            if (localKeys.size() >= maxLocalKeys) {
+                break;
+            }
+            localKeys.add(compositeKey);
+        }
+        return new CacheSnapshot(System.currentTimeMillis(), hotKeyDetector.list(), localKeys);
+    }
+
+    /**
+     * 从快照恢复：热 Key 按快照中的计数写入检测器，再按 hash 分组从 Redis 重新读取本地缓存的值
+     *
+     * @return 恢复到本地缓存的条目数
+     */
+    public long restore(CacheSnapshot snapshot) {
+        int minCount = hotKeyProperties.getMinCount();
+        Map<String, Integer> hotKeys = new HashMap<>();
+        for (Item item : snapshot.hotKeys()) {
+            hotKeys.put(item.key(), Math.max(item.count(), minCount));
+        }
+        hotKeyDetector.addAll(hotKeys);
+
+        Map<String, List<String>> fieldsByHash = new HashMap<>();
+        for (String compositeKey : snapshot.localKeys()) {
+            int separator = compositeKey.lastIndexOf(':');
+            if (separator > 0) {
+                fieldsByHash.computeIfAbsent(compositeKey.substring(0, separator), k -> new ArrayList<>())
+                        .add(compositeKey.substring(separator + 1));
+            }
+        }
+        // getAll 会把仍是热 Key 的字段写入本地缓存
+        fieldsByHash.forEach(this::getAll);
+        return localCacheSize();
+    }
+
+    /**
+     * 运行期修改配置：检测器参数变化时重建检测器并迁移当前热 Key，本地缓存的容量和过期时间原地生效
+     * <p>
+     * 修改先作用在配置的副本上，校验通过且新检测器创建成功后才生效；失败时抛出异常，配置和检测器都保持不变。
+     *
+     * @param changes 对配置的修改
+     */
+    public synchronized void reconfigure(Consumer<HotKeyProperties> changes) {
+        HotKeyProperties updated = hotKeyProperties.copy();
+        changes.accept(updated);
+        validate(updated);
+        DetectorSpec spec = DetectorSpec.of(updated);
+        TopK detector = spec.equals(detectorSpec) ? null : createDetector(spec);
+
+        if (detector != null) {
+            replaceDetector(detector, spec);
+        }
+        HotKeyProperties.LocalCache config = updated.getLocalCache();
+        localCache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(eviction.isWeighted()
+                ? config.getMaximumWeight().toBytes()
+                : config.getMaximumSize()));
+        localCache.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(config.getExpireAfterWrite()));
+        if (offHeapStore != null) {
+            offHeapStore.setExpireAfterWrite(config.getExpireAfterWrite());
+        }
+        BeanUtils.copyProperties(updated, hotKeyProperties);
+    }
+
+    public long localCacheSize() {
+        return localCache.estimatedSize() + (offHeapStore == null ? 0 : offHeapStore.size());
+    }
+
+    /**
+     * 堆内缓存按权重限制时的估算字节数，按条目数限制时为 -1
+     */
+    public long localCacheWeight() {
+        return localCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(-1))
+                .orElse(-1L);
+    }
+
+    /**
+     * 堆外存储，未开启时为 null
+     */
+    public OffHeapThumbStore getOffHeapStore() {
+        return offHeapStore;
+    }
+
+    private TopK createDetector(DetectorSpec spec) {
+        TopK detector = spec.algorithm().create(spec.k(), spec.width(), spec.depth(), spec.decay(), spec.minCount(),
+                spec.windowCount());
+        detector.addListener(new HotKeyListener() {
+            @Override
+            public void onExpelled(Item item) {
+                evictLocal(item.key());
+            }
+        });
+        return detector;
+    }
+
+    // 把当前 TopK 成员按原计数写入新检测器，再替换旧检测器
+    private void replaceDetector(TopK detector, DetectorSpec spec) {
+        TopK previous = hotKeyDetector;
+        Map<String, Integer> hotKeys = new HashMap<>();
+        for (Item item : previous.list()) {
+            hotKeys.put(item.key(), Math.max(item.count(), spec.minCount()));
+        }
+        detector.addAll(hotKeys);
+        hotKeyDetector = detector;
+        detectorSpec = spec;
+        previous.close();
+
+        // k 变小时放不下的旧成员不再占用本地缓存
+        for (Item item : detector.list()) {
+            hotKeys.remove(item.key());
+        }
+        hotKeys.keySet().forEach(this::evictLocal);
+        log.info("热 Key 检测器已替换 {}，迁移 {} 个热 Key", spec, detector.list().size());
+    }
+
+    // 校验修改后的配置，此时还没有任何修改生效
+    private void validate(HotKeyProperties properties) {
+        requirePositive("k", properties.getK());
+        requirePositive("width", properties.getWidth());
+        requirePositive("depth", properties.getDepth());
+        requirePositive("minCount", properties.getMinCount());
+        requirePositive("windowCount", properties.getWindowCount());
+        if (properties.getDecay() <= 0 || properties.getDecay() >= 1) {
+            throw new IllegalArgumentException("decay 必须在 (0, 1) 之间");
+        }
+        if (properties.getFadingInterval() == null || properties.getFadingInterval().toSeconds() < 1) {
+            throw new IllegalArgumentException("fadingInterval 不能小于 1 秒");
+        }
+        HotKeyProperties.LocalCache config = properties.getLocalCache();
+        requirePositive("localCacheMaximumSize", config.getMaximumSize());
+        boolean weighted = localCache.policy().eviction().map(eviction -> eviction.isWeighted()).orElse(false);
+        if (weighted != (config.getMaximumWeight() != null)) {
+            throw new IllegalArgumentException(weighted
+                    ? "本地缓存按内存限制，不能取消 localCacheMaximumWeight"
+                    : "本地缓存按条目数限制，不能修改 localCacheMaximumWeight");
+        }
+        if (config.getMaximumWeight() != null) {
+            requirePositive("localCacheMaximumWeight", config.getMaximumWeight().toBytes());
+        }
+        if (config.getExpireAfterWrite() == null
+                || config.getExpireAfterWrite().isNegative() || config.getExpireAfterWrite().isZero()) {
+            throw new IllegalArgumentException("localCacheExpireAfterWrite 必须大于 0");
+        }
+        requirePositive("autoSize.maxWidth", properties.getAutoSize().getMaxWidth());
+    }
+
+    private static void requirePositive(String name, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " 必须大于 0");
+        }
+    }
+
+    // 上一周期的冲突率或占用率超过阈值时宽度翻倍
+    private synchronized void autoSize() {
+        SketchStats stats = hotKeyDetector.sketchStats();
+        HotKeyProperties.AutoSize config = hotKeyProperties.getAutoSize();
+        if (stats.width() == 0
+                || (stats.collisionRate() < config.getCollisionThreshold()
+                && stats.occupancy() < config.getOccupancyThreshold())) {
+            return;
+        }
+        int width = stats.width() * 2;
+        if (width > config.getMaxWidth()) {
+            log.warn("热 Key 哈希表已达宽度上限 {}，{}", config.getMaxWidth(), stats);
+            return;
+        }
+        log.info("热 Key 哈希表扩容 {} -> {}，{}", stats.width(), width, stats);
+        reconfigure(properties -> properties.setWidth(width));
+    }
+
+    private FieldLoader fieldLoader(String hashKey) {
+        for (FieldLoader loader : fieldLoaders) {
+            if (loader.supports(hashKey)) {
+                return loader;
+            }
+        }
+        return null;
+    }
+
+    private Object readField(String hashKey, String field) {
+        FieldLoader loader = fieldLoader(hashKey);
+        if (loader != null) {
+            return loader.load(hashKey, List.of(field)).get(0);
+        }
+        return redisTemplate.opsForHash().get(hashKey, field);
+    }
+
+    private List<Object> readFields(String hashKey, List<String> fields) {
+        FieldLoader loader = fieldLoader(hashKey);
+        if (loader != null) {
+            return loader.load(hashKey, fields);
+        }
+        return redisTemplate.opsForHash().multiGet(hashKey, Collections.unmodifiableList(fields));
+    }
+
+    private Timer redisTimer(String operation) {
+        return Timer.builder("cache.redis.latency")
+                .description("Redis reads issued after a local cache miss")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Object getLocal(String hashKey, String key, String compositeKey) {
+        if (offHeapStore != null) {
+            Object value = offHeapStore.get(hashKey, key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return localCache.getIfPresent(compositeKey);
+    }
+
+    private void putLocal(String hashKey, String key, String compositeKey, Object value) {
+        // 堆外存储不建索引，热 Key 退出 TopK 后其条目等待过期或淘汰
+        if (offHeapStore != null && offHeapStore.put(hashKey, key, value)) {
             return;
         }
+        localKeyIndex.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(compositeKey);
         localCache.put(compositeKey, value);
     }
 
-    // 定时清理过期的热 Key 检测数据
-    @Scheduled(fixedRate = 20, timeUnit = TimeUnit.SECONDS)
+    // 热 Key 退出 TopK 后，不再让它占用本地缓存
+    private void evictLocal(String key) {
+        Set<String> compositeKeys = localKeyIndex.remove(key);
+        if (compositeKeys != null) {
+            localCache.invalidateAll(compositeKeys);
+        }
+    }
+
+    // 其他节点发来的失效
+    private void invalidateLocal(Set<String> compositeKeys) {
+        compositeKeys.forEach(this::bumpInvalidationVersion);
+        compositeKeys.forEach(redisReads::forget);
+        localCache.invalidateAll(compositeKeys);
+        compositeKeys.forEach(this::unindexLocal);
+        if (offHeapStore != null) {
+            compositeKeys.forEach(offHeapStore::invalidate);
+        }
+    }
+
+    private long invalidationVersion(String compositeKey) {
+        return invalidationVersions.get(invalidationStripe(compositeKey));
+    }
+
+    private void bumpInvalidationVersion(String compositeKey) {
+        invalidationVersions.incrementAndGet(invalidationStripe(compositeKey));
+    }
+
+    private static int invalidationStripe(String compositeKey) {
+        return (int) BucketTable.mix64(compositeKey.hashCode()) & (INVALIDATION_STRIPES - 1);
+    }
+
+    private void unindexLocal(String compositeKey) {
+        String key = compositeKey.substring(compositeKey.lastIndexOf(':') + 1);
+        localKeyIndex.computeIfPresent(key, (k, compositeKeys) -> {
+            compositeKeys.remove(compositeKey);
+            return compositeKeys.isEmpty() ? null : compositeKeys;
+        });
+    }
+
+    // 定时清理过期的热 Key 检测数据，每秒检查一次，衰减间隔可在运行期修改
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.SECONDS)
     public void cleanHotKeys() {
+        long now = System.nanoTime();
+        if (now - lastFadingNanos < hotKeyProperties.getFadingInterval().toNanos()) {
+            return;
+        }
+        lastFadingNanos = now;
         hotKeyDetector.fading();
+        if (hotKeyProperties.getAutoSize().isEnabled()) {
+            autoSize();
+        }
+    }
+
+    // 检测器参数，任一项变化都需要重建检测器
+    private record DetectorSpec(TopKAlgorithm algorithm, int k, int width, int depth, double decay, int minCount,
+                                int windowCount) {
+
+        static DetectorSpec of(HotKeyProperties properties) {
+            return new DetectorSpec(properties.getAlgorithm(), properties.getK(), properties.getWidth(),
+                    properties.getDepth(), properties.getDecay(), properties.getMinCount(),
+                    properties.getWindowCount());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.manager.thumb.UserThumbStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.commonspool2.CommonsObjectPool2Metrics;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 多级缓存指标
+ * <p>
+ * 本地缓存：堆内 Caffeine 的 cache.gets/cache.evictions（cache=local），堆外点赞状态的 cache.offheap.gets；
+ * Redis：未命中后的读取耗时 cache.redis.latency 和取连接等待 redis.pool.borrow 由各自的调用方记录，
+ * 这里导出 Jedis 连接池的 commons.pool2.* 指标；
+ * 热 Key 检测器：从 CacheManager 动态读取，检测器被替换后指标跟随新的检测器。
+ *
+ * @author KiveAllen
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private UserThumbFilter userThumbFilter;
+
+    @Resource
+    private HotBlogLikers hotBlogLikers;
+
+    @Resource
+    private UserThumbStore userThumbStore;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cacheManager.getLocalCache(), "local");
+        OffHeapThumbStore offHeapStore = cacheManager.getOffHeapStore();
+        if (offHeapStore != null) {
+            FunctionCounter.builder("cache.offheap.gets", offHeapStore, OffHeapThumbStore::hits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.gets", offHeapStore, OffHeapThumbStore::misses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("cache.offheap.size", offHeapStore, OffHeapThumbStore::size)
+                    .register(registry);
+        }
+        new CommonsObjectPool2Metrics().bindTo(registry);
+        bindHotKeyDetector(registry);
+
+        SingleFlight<String, Object> redisReads = cacheManager.getRedisReads();
+        FunctionCounter.builder("cache.singleflight.loads", redisReads, SingleFlight::loads)
+                .description("Redis reads issued on local cache misses")
+                .register(registry);
+        FunctionCounter.builder("cache.singleflight.coalesced", redisReads, SingleFlight::coalesced)
+                .description("Local cache misses served by another request's in-flight Redis read")
+                .register(registry);
+
+        FunctionCounter.builder("cache.thumb.filter.negatives", userThumbFilter, UserThumbFilter::negatives)
+                .description("hasThumb lookups answered as not liked by the per-user Bloom filter")
+                .register(registry);
+        FunctionCounter.builder("cache.thumb.filter.positives", userThumbFilter, UserThumbFilter::positives)
+                .description("hasThumb lookups the Bloom filter passed on to the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.thumb.filter.false.positives", userThumbFilter, UserThumbFilter::falsePositives)
+                .description("Bloom filter positives that turned out not liked")
+                .register(registry);
+        FunctionCounter.builder("cache.thumb.filter.builds", userThumbFilter, UserThumbFilter::builds)
+                .register(registry);
+        Gauge.builder("cache.thumb.filter.false.positive.ratio", userThumbFilter, filter -> {
+                    // 过滤器判定未点赞的一定未点赞，误判率 = 误判 / (误判 + 判定未点赞)
+                    long notLiked = filter.falsePositives() + filter.negatives();
+                    return notLiked == 0 ? 0 : (double) filter.falsePositives() / notLiked;
+                })
+                .description("Observed Bloom filter false-positive rate since startup")
+                .register(registry);
+        Gauge.builder("cache.thumb.filter.bytes", userThumbFilter, UserThumbFilter::estimatedBytes)
+                .register(registry);
+
+        FunctionCounter.builder("cache.hot.blog.hits", hotBlogLikers, HotBlogLikers::hits)
+                .description("hasThumb lookups answered by a hot blog's local liker set")
+                .register(registry);
+        Gauge.builder("cache.hot.blog.size", hotBlogLikers, HotBlogLikers::blogCount)
+                .register(registry);
+        Gauge.builder("cache.hot.blog.bytes", hotBlogLikers, HotBlogLikers::estimatedBytes)
+                .register(registry);
+
+        FunctionCounter.builder("thumb.storage.reloads", userThumbStore, UserThumbStore::reloads)
+                .description("Idle-expired user thumb data reloaded from the database")
+                .register(registry);
+    }
+
+    private void bindHotKeyDetector(MeterRegistry registry) {
+        Gauge.builder("hotkey.total", cacheManager, manager -> manager.getHotKeyDetector().total())
+                .description("Decayed access count seen by the hot-key detector")
+                .register(registry);
+        Gauge.builder("hotkey.heap.size", cacheManager, manager -> manager.getHotKeyDetector().list().size())
+                .register(registry);
+        Gauge.builder("hotkey.heap.min.count", cacheManager, manager -> manager.getHotKeyDetector().minHotCount())
+                .description("Count a key must reach to enter the TopK, 0 while the TopK is not full")
+                .register(registry);
+        Gauge.builder("hotkey.sketch.occupancy", cacheManager,
+                        manager -> manager.getHotKeyDetector().sketchStats().occupancy())
+                .description("Fraction of occupied buckets in the last fading period")
+                .register(registry);
+        Gauge.builder("hotkey.sketch.collision.rate", cacheManager,
+                        manager -> manager.getHotKeyDetector().sketchStats().collisionRate())
+                .register(registry);
+        FunctionCounter.builder("hotkey.sketch.replacements", cacheManager,
+                        manager -> manager.getHotKeyDetector().replacements())
+                .description("Buckets taken over by another key after decaying to zero")
+                .register(registry);
+        Gauge.builder("hotkey.expelled.depth", cacheManager, manager -> manager.getHotKeyDetector().expelled().size())
+                .register(registry);
+        FunctionCounter.builder("hotkey.dropped.events", cacheManager,
+                        manager -> manager.getHotKeyDetector().droppedEvents())
+                .register(registry);
+    }
+}
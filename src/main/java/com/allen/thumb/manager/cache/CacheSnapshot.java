@@ -0,0 +1,138 @@
+package com.allen.thumb.manager.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 热 Key 检测器和本地缓存的快照
+ * <p>
+ * 只保存热 Key 及计数、本地缓存中的复合 key，不保存值：重启期间其他节点可能修改过数据，
+ * 恢复时按 key 重新从 Redis 读取，不会把旧值放回本地缓存。
+ * <p>
+ * 文件格式：魔数、版本、创建时间、热 Key 列表（key + 计数）、复合 key 列表，最后是前面所有内容的 CRC32。
+ * 写入时先映射临时文件写完并刷盘，再原子替换正式文件，进程在写入过程中退出不会留下半个快照。
+ *
+ * @param createdAtMillis 创建时间
+ * @param hotKeys         热 Key 及计数
+ * @param localKeys       本地缓存中的复合 key
+ * @author KiveAllen
+ */
+public record CacheSnapshot(long createdAtMillis, List<Item> hotKeys, List<String> localKeys) {
+
+    private static final int MAGIC = 0x414C4B53;
+
+    private static final int VERSION = 1;
+
+    public void write(Path path) throws IOException {
+        List<byte[]> hotKeyBytes = encode(hotKeys.stream().map(Item::key).toList());
+        List<byte[]> localKeyBytes = encode(localKeys);
+        long size = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2 + Long.BYTES;
+        for (byte[] key : hotKeyBytes) {
+            size += Integer.BYTES * 2 + key.length;
+        }
+        for (byte[] key : localKeyBytes) {
+            size += Integer.BYTES + key.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("快照超过 2GB");
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(createdAtMillis);
+                buffer.putInt(hotKeyBytes.size());
+                for (int i = 0; i < hotKeyBytes.size(); i++) {
+                    putBytes(buffer, hotKeyBytes.get(i));
+                    buffer.putInt(hotKeys.get(i).count());
+                }
+                buffer.putInt(localKeyBytes.size());
+                for (byte[] key : localKeyBytes) {
+                    putBytes(buffer, key);
+                }
+                buffer.putLong(checksum(buffer, buffer.position()));
+                buffer.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 读取快照，文件不存在时返回 null
+     *
+     * @throws IOException 读取失败或文件损坏
+     */
+    public static CacheSnapshot read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    throw new IOException("不是快照文件或版本不兼容");
+                }
+                long createdAtMillis = buffer.getLong();
+                int hotKeyCount = buffer.getInt();
+                List<Item> hotKeys = new ArrayList<>(Math.min(hotKeyCount, 1 << 16));
+                for (int i = 0; i < hotKeyCount; i++) {
+                    String key = getString(buffer);
+                    hotKeys.add(new Item(key, buffer.getInt()));
+                }
+                int localKeyCount = buffer.getInt();
+                List<String> localKeys = new ArrayList<>(Math.min(localKeyCount, 1 << 16));
+                for (int i = 0; i < localKeyCount; i++) {
+                    localKeys.add(getString(buffer));
+                }
+                int end = buffer.position();
+                if (buffer.getLong() != checksum(buffer, end)) {
+                    throw new IOException("快照校验失败");
+                }
+                return new CacheSnapshot(createdAtMillis, hotKeys, localKeys);
+            } catch (RuntimeException e) {
+                // 长度字段损坏导致越界等
+                throw new IOException("快照文件损坏", e);
+            }
+        }
+    }
+
+    private static List<byte[]> encode(List<String> keys) {
+        List<byte[]> encoded = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            encoded.add(key.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoded;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, length));
+        return crc.getValue();
+    }
+}
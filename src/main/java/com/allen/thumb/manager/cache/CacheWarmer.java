@@ -0,0 +1,194 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.constant.RedisLuaScriptConstant;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热
+ * <p>
+ * ApplicationRunner 在应用报告就绪（ApplicationReadyEvent）之前执行，预热完成前不会接收流量：
+ * 1. 从快照恢复热 Key 检测器和本地缓存，本地缓存的值重新从 Redis 读取；
+ * 2. SCRIPT LOAD 预加载 {@link RedisLuaScriptConstant} 中的脚本，首次 EVALSHA 不会 NOSCRIPT 再回退到 EVAL；
+ * 3. 预先建立 Redis 和数据库连接，第一批请求不必等待建连。
+ * <p>
+ * 运行期间定时写快照，停机时再写一次。
+ *
+ * @author KiveAllen
+ */
+@Component
+@Slf4j
+public class CacheWarmer implements ApplicationRunner {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Resource
+    private DataSource dataSource;
+
+    // 上次快照的时间
+    private long lastSnapshotNanos = System.nanoTime();
+
+    // 预热完成前不写快照，避免用空的检测器覆盖上一次的快照
+    private volatile boolean restored;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        restoreSnapshot();
+        preloadScripts();
+        prefillRedisConnections();
+        prefillJdbcConnections();
+        log.info("启动预热完成，耗时 {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // 每秒检查一次，快照间隔可在配置中修改
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.SECONDS)
+    public void scheduledSnapshot() {
+        HotKeyProperties.WarmUp config = hotKeyProperties.getWarmUp();
+        long now = System.nanoTime();
+        if (!config.isSnapshotEnabled() || now - lastSnapshotNanos < config.getSnapshotInterval().toNanos()) {
+            return;
+        }
+        lastSnapshotNanos = now;
+        writeSnapshot();
+    }
+
+    @PreDestroy
+    public void shutdownSnapshot() {
+        if (hotKeyProperties.getWarmUp().isSnapshotEnabled()) {
+            writeSnapshot();
+        }
+    }
+
+    private void writeSnapshot() {
+        if (!restored) {
+            return;
+        }
+        HotKeyProperties.WarmUp config = hotKeyProperties.getWarmUp();
+        try {
+            CacheSnapshot snapshot = cacheManager.snapshot(config.getMaxLocalKeys());
+            snapshot.write(Path.of(config.getSnapshotPath()));
+        } catch (Exception e) {
+            log.warn("写入缓存快照失败 {}", config.getSnapshotPath(), e);
+        }
+    }
+
+    private void restoreSnapshot() {
+        HotKeyProperties.WarmUp config = hotKeyProperties.getWarmUp();
+        try {
+            if (!config.isSnapshotEnabled()) {
+                return;
+            }
+            CacheSnapshot snapshot = CacheSnapshot.read(Path.of(config.getSnapshotPath()));
+            if (snapshot == null) {
+                return;
+            }
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - snapshot.createdAtMillis());
+            if (age.compareTo(config.getSnapshotMaxAge()) > 0) {
+                log.info("缓存快照已过期 {}，不再恢复", age);
+                return;
+            }
+            long localEntries = cacheManager.restore(snapshot);
+            log.info("从快照恢复 {} 个热 Key、{} 个本地缓存条目，快照创建于 {} 前",
+                    snapshot.hotKeys().size(), localEntries, age);
+        } catch (Exception e) {
+            // 快照只用于预热，失败时冷启动
+            log.warn("恢复缓存快照失败 {}", config.getSnapshotPath(), e);
+        } finally {
+            restored = true;
+        }
+    }
+
+    private void preloadScripts() {
+        List<RedisScript<?>> scripts = luaScripts();
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            for (RedisScript<?> script : scripts) {
+                connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+            }
+            log.info("预加载 {} 个 Lua 脚本", scripts.size());
+        } catch (Exception e) {
+            log.warn("预加载 Lua 脚本失败", e);
+        }
+    }
+
+    private void prefillRedisConnections() {
+        int count = hotKeyProperties.getWarmUp().getRedisConnections();
+        List<RedisConnection> connections = new ArrayList<>(count);
+        try {
+            // 同时持有多个连接，连接池才会创建多个
+            for (int i = 0; i < count; i++) {
+                RedisConnection connection = redisConnectionFactory.getConnection();
+                connections.add(connection);
+                connection.ping();
+            }
+        } catch (Exception e) {
+            log.warn("预先建立 Redis 连接失败，已建立 {} 个", connections.size(), e);
+        } finally {
+            connections.forEach(RedisConnection::close);
+        }
+    }
+
+    private void prefillJdbcConnections() {
+        int count = hotKeyProperties.getWarmUp().getJdbcConnections();
+        List<Connection> connections = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } catch (Exception e) {
+            log.warn("预先建立数据库连接失败，已建立 {} 个", connections.size(), e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (Exception e) {
+                    log.debug("归还数据库连接失败", e);
+                }
+            }
+        }
+    }
+
+    // RedisLuaScriptConstant 中所有的脚本常量，新增脚本不需要在这里登记
+    private static List<RedisScript<?>> luaScripts() {
+        List<RedisScript<?>> scripts = new ArrayList<>();
+        for (Field field : RedisLuaScriptConstant.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && RedisScript.class.isAssignableFrom(field.getType())) {
+                try {
+                    scripts.add((RedisScript<?>) field.get(null));
+                } catch (IllegalAccessException e) {
+                    log.debug("无法读取脚本常量 {}", field.getName(), e);
+                }
+            }
+        }
+        return scripts;
+    }
+}
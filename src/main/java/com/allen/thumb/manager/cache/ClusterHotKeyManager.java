@@ -0,0 +1,126 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.constant.HotKeyConstant;
+import com.allen.thumb.util.NodeUtil;
+import com.allen.thumb.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群热 Key 聚合
+ * <p>
+ * 每个节点定时把本地 TopK 上报到 Redis，再把所有存活节点的上报结果按上报时间衰减后求和，
+ * 得到全局热 Key。本地还不热的全局热 Key 会直接写入本地热 Key 检测器，
+ * 冷节点不必等自己攒够 minCount 就能让这些 key 走本地缓存。
+ *
+ * @author KiveAllen
+ */
+@Component
+@Slf4j
+public class ClusterHotKeyManager {
+
+    // 同步周期（秒）
+    private static final long SYNC_PERIOD_SECONDS = 5;
+
+    // 上报数据保留时长，超过该时长未上报的节点视为下线
+    private static final Duration NODE_TTL = Duration.ofSeconds(SYNC_PERIOD_SECONDS * 3);
+
+    // 每晚一个周期，节点上报的计数权重乘以该系数
+    private static final double NODE_DECAY = 0.5;
+
+    // 拉取的全局热 Key 数量
+    private static final int GLOBAL_TOP_N = 100;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Scheduled(fixedRate = SYNC_PERIOD_SECONDS, timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        try {
+            publish();
+            Map<String, Integer> globalHotKeys = merge();
+            if (!globalHotKeys.isEmpty()) {
+                cacheManager.prewarm(globalHotKeys);
+            }
+        } catch (Exception e) {
+            log.warn("集群热 Key 同步失败", e);
+        }
+    }
+
+    /**
+     * 上报本节点的 TopK
+     */
+    private void publish() {
+        String nodeId = NodeUtil.getNodeId();
+        String nodeKey = RedisKeyUtil.getNodeHotKey(nodeId);
+        List<Item> items = cacheManager.hotKeys();
+
+        stringRedisTemplate.delete(nodeKey);
+        if (!items.isEmpty()) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(items.size());
+            for (Item item : items) {
+                tuples.add(ZSetOperations.TypedTuple.of(item.key(), (double) item.count()));
+            }
+            stringRedisTemplate.opsForZSet().add(nodeKey, tuples);
+            stringRedisTemplate.expire(nodeKey, NODE_TTL);
+        }
+        stringRedisTemplate.opsForZSet().add(HotKeyConstant.HOT_KEY_NODES_KEY, nodeId, System.currentTimeMillis());
+    }
+
+    /**
+     * 合并存活节点的上报数据，返回全局热 Key 及平均到每个节点的计数
+     */
+    private Map<String, Integer> merge() {
+        long now = System.currentTimeMillis();
+        long deadline = now - NODE_TTL.toMillis();
+        ZSetOperations<String, String> zSetOps = stringRedisTemplate.opsForZSet();
+        zSetOps.removeRangeByScore(HotKeyConstant.HOT_KEY_NODES_KEY, Double.NEGATIVE_INFINITY, deadline);
+        Set<ZSetOperations.TypedTuple<String>> nodes =
+                zSetOps.rangeByScoreWithScores(HotKeyConstant.HOT_KEY_NODES_KEY, deadline, Double.POSITIVE_INFINITY);
+        if (nodes == null || nodes.isEmpty()) {
+            return Map.of();
+        }
+
+        // 按上报时间衰减：刚上报的节点权重为 1，每晚一个周期乘以 NODE_DECAY
+        List<String> nodeKeys = new ArrayList<>(nodes.size());
+        double[] weights = new double[nodes.size()];
+        for (ZSetOperations.TypedTuple<String> node : nodes) {
+            double ageInPeriods = (now - node.getScore()) / 1000.0 / SYNC_PERIOD_SECONDS;
+            weights[nodeKeys.size()] = Math.pow(NODE_DECAY, Math.max(0, ageInPeriods));
+            nodeKeys.add(RedisKeyUtil.getNodeHotKey(node.getValue()));
+        }
+        zSetOps.unionAndStore(nodeKeys.getFirst(), nodeKeys.subList(1, nodeKeys.size()),
+                HotKeyConstant.GLOBAL_HOT_KEY, Aggregate.SUM, Weights.of(weights));
+        stringRedisTemplate.expire(HotKeyConstant.GLOBAL_HOT_KEY, NODE_TTL);
+
+        Set<ZSetOperations.TypedTuple<String>> top =
+                zSetOps.reverseRangeWithScores(HotKeyConstant.GLOBAL_HOT_KEY, 0, GLOBAL_TOP_N - 1);
+        if (top == null || top.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Integer> result = new LinkedHashMap<>(top.size());
+        for (ZSetOperations.TypedTuple<String> tuple : top) {
+            double perNode = tuple.getScore() / nodes.size();
+            result.put(tuple.getValue(), (int) Math.max(1, Math.min(Integer.MAX_VALUE, perNode)));
+        }
+        return result;
+    }
+}
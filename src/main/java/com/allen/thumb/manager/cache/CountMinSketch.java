@@ -0,0 +1,83 @@
+package com.allen.thumb.manager.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Count-Min Sketch
+ * <p>
+ * depth 行、每行 width 个计数器，写入时每一行对应的计数器都加上增量，
+ * 查询取各行的最小值。估算值只会偏大，偏差随宽度增大而减小。
+ * 计数器按行连续存放在一个 int[] 中，写入使用原子加，不加锁。
+ *
+ * @author KiveAllen
+ */
+final class CountMinSketch {
+
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int width;
+    private final int depth;
+    // 计数器数组，下标为 row * width + column
+    private final int[] counters;
+    // 每一行的哈希种子
+    private final long[] seeds;
+
+    CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("width 和 depth 必须大于 0");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new int[Math.multiplyExact(width, depth)];
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = BucketTable.mix64(0xC2B2AE3D27D4EB4FL * (i + 1));
+        }
+    }
+
+    /**
+     * 写入并返回写入后的估算值
+     */
+    int add(long hash, int increment) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + column(hash, row);
+            int previous = (int) COUNTERS.getAndAdd(counters, index, increment);
+            min = Math.min(min, previous + increment);
+        }
+        return min;
+    }
+
+    int query(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, (int) COUNTERS.getAcquire(counters, row * width + column(hash, row)));
+        }
+        return min;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    void fading() {
+        for (int i = 0; i < counters.length; i++) {
+            int current;
+            do {
+                current = (int) COUNTERS.getAcquire(counters, i);
+                if (current == 0) {
+                    break;
+                }
+            } while (!COUNTERS.compareAndSet(counters, i, current, current >> 1));
+        }
+    }
+
+    long bytes() {
+        return (long) counters.length * Integer.BYTES;
+    }
+
+    private int column(long hash, int row) {
+        long mixed = BucketTable.mix64(hash ^ seeds[row]);
+        return (int) (((mixed >>> 32) * width) >>> 32);
+    }
+}
@@ -0,0 +1,134 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-Min Sketch + 最小堆的 TopK
+ * <p>
+ * 计数由 {@link CountMinSketch} 估算，估算值超过阈值后交给 {@link TopKHeap} 决定是否进入 TopK。
+ * 与 HeavyKeeper 相比，计数器不区分 key，长尾 key 的冲突会把计数抬高，
+ * 但写入只有原子加，没有随机衰减。
+ *
+ * @author KiveAllen
+ */
+public class CountMinTopK implements TopK {
+    // Count-Min 计数器
+    private final CountMinSketch sketch;
+    // TopK 成员，包括最小堆、被驱逐队列和事件分发
+    private final TopKHeap topK;
+    // 总计数
+    private final LongAdder total;
+    // 最小计数阈值
+    private final int minCount;
+
+    /**
+     * 构造函数
+     * @param k TopK的K值
+     * @param width 每行计数器数量
+     * @param depth 行数
+     * @param minCount 最小计数阈值
+     */
+    public CountMinTopK(int k, int width, int depth, int minCount) {
+        this.minCount = minCount;
+        this.sketch = new CountMinSketch(width, depth);
+        this.topK = new TopKHeap(k, TopKHeap.EXPELLED_QUEUE_CAPACITY);
+        this.total = new LongAdder();
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        int count = sketch.add(HeavyKeeper.hash(key), increment);
+        total.add(increment);
+
+        if (count < minCount) {
+            return TopKHeap.NOT_HOT;
+        }
+        return topK.offer(key, count);
+    }
+
+    @Override
+    public AddResult add(long key, int increment) {
+        int count = sketch.add(HeavyKeeper.hash(key), increment);
+        total.add(increment);
+
+        if (count < minCount) {
+            return TopKHeap.NOT_HOT;
+        }
+        return topK.offer(Long.toString(key), count);
+    }
+
+    @Override
+    public List<AddResult> addAll(Map<String, Integer> increments) {
+        Map<String, Integer> candidates = new HashMap<>();
+        long sum = 0;
+        for (Map.Entry<String, Integer> entry : increments.entrySet()) {
+            int increment = entry.getValue();
+            if (increment <= 0) {
+                continue;
+            }
+            int count = sketch.add(HeavyKeeper.hash(entry.getKey()), increment);
+            sum += increment;
+            if (count >= minCount) {
+                candidates.put(entry.getKey(), count);
+            }
+        }
+        total.add(sum);
+        return topK.offerAll(candidates);
+    }
+
+    @Override
+    public List<Item> list() {
+        return topK.list();
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return topK.expelled();
+    }
+
+    /**
+     * 所有计数器和 TopK 成员的计数减半
+     */
+    @Override
+    public void fading() {
+        sketch.fading();
+        topK.halve();
+
+        long current = total.sumThenReset();
+        total.add(current >> 1);
+    }
+
+    @Override
+    public long total() {
+        return total.sum();
+    }
+
+    @Override
+    public void addListener(HotKeyListener listener) {
+        topK.addListener(listener);
+    }
+
+    @Override
+    public long droppedEvents() {
+        return topK.droppedEvents();
+    }
+
+    @Override
+    public void close() {
+        topK.close();
+    }
+
+    @Override
+    public int minHotCount() {
+        return topK.minCount();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return sketch.bytes() + topK.estimatedBytes();
+    }
+}
@@ -0,0 +1,26 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.List;
+
+/**
+ * 本地缓存未命中时读取 Redis 的方式
+ * <p>
+ * 默认按 Redis hash 读取；数据改用其他结构存储的 key 由对应的实现读取，
+ * 本地缓存、失效广播仍按 hashKey:field 组织，不受存储结构影响。
+ *
+ * @author KiveAllen
+ */
+public interface FieldLoader {
+
+    /**
+     * 是否由该实现读取
+     */
+    boolean supports(String hashKey);
+
+    /**
+     * 批量读取
+     *
+     * @return 与 fields 一一对应的值，不存在的为 null
+     */
+    List<Object> load(String hashKey, List<String> fields);
+}
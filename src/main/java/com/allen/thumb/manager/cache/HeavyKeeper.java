@@ -3,37 +3,34 @@ package com.allen.thumb.manager.cache;
 import cn.hutool.core.util.HashUtil;
 import lombok.Data;
 
-import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * HeavyKeeper类实现了TopK接口，用于维护一个近似的TopK元素集合。
  * 它通过使用计数最小堆和哈希桶的数据结构来实现。
+ * 哈希桶由 {@link BucketTable} 以 CAS 方式无锁更新，
+ * 已在 TopK 中的 key 通过 {@link TopKHeap} 无锁命中，只有新 key 进入 TopK 时才加锁。
  */
 public class HeavyKeeper implements TopK {
-    // 查找表大小
-    private static final int LOOKUP_TABLE_SIZE = 256;
-    // TopK的K值
-    private final int k;
-    // 宽度，即每个深度层级的桶数量
-    private final int width;
-    // 深度，即桶的层数
-    private final int depth;
-    // 查找表，用于存储衰减因子
-    private final double[] lookupTable;
-    // 桶数组，用于存储元素指纹和计数
-    private final Bucket[][] buckets;
-    // 最小堆，用于维护TopK元素
-    private final PriorityQueue<Node> minHeap;
-    // 被驱逐元素队列
-    private final BlockingQueue<Item> expelledQueue;
-    // 随机数生成器
-    private final Random random;
+    // 直接混合数值的数字 key 上限，即 18 位十进制数
+    private static final long NUMERIC_KEY_LIMIT = 1_000_000_000_000_000_000L;
+    // 桶表，用于存储元素指纹和计数
+    private final BucketTable buckets;
+    // TopK 成员，包括最小堆、被驱逐队列和事件分发
+    private final TopKHeap topK;
     // 总计数
-    private long total;
+    private final LongAdder total;
     // 最小计数阈值
     private final int minCount;
+    // 上次衰减后的总计数，用于计算周期内的增量
+    private long lastTotal;
+    // 上一个衰减周期的桶表统计
+    private volatile SketchStats stats;
 
     /**
      * 构造函数，初始化HeavyKeeper实例
@@ -44,27 +41,24 @@ public class HeavyKeeper implements TopK {
      * @param minCount 最小计数阈值
      */
     public HeavyKeeper(int k, int width, int depth, double decay, int minCount) {
-        this.k = k;
-        this.width = width;
-        this.depth = depth;
-        this.minCount = minCount;
-
-        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
-        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
-            lookupTable[i] = Math.pow(decay, i);
-        }
-
-        this.buckets = new Bucket[depth][width];
-        for (int i = 0; i < depth; i++) {
-            for (int j = 0; j < width; j++) {
-                buckets[i][j] = new Bucket();
-            }
-        }
+        this(k, width, depth, decay, minCount, TopKHeap.EXPELLED_QUEUE_CAPACITY);
+    }
 
-        this.minHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
-        this.expelledQueue = new LinkedBlockingQueue<>();
-        this.random = new Random();
-        this.total = 0;
+    /**
+     * 构造函数，初始化HeavyKeeper实例
+     * @param k TopK的K值
+     * @param width 宽度，即每个深度层级的桶数量
+     * @param depth 深度，即桶的层数
+     * @param decay 衰减因子
+     * @param minCount 最小计数阈值
+     * @param expelledCapacity 被驱逐队列容量
+     */
+    public HeavyKeeper(int k, int width, int depth, double decay, int minCount, int expelledCapacity) {
+        this.minCount = minCount;
+        this.buckets = new BucketTable(width, depth, decay);
+        this.topK = new TopKHeap(k, expelledCapacity);
+        this.total = new LongAdder();
+        this.stats = new SketchStats(width, depth, 0, 0);
     }
 
     /**
@@ -75,73 +69,51 @@ public class HeavyKeeper implements TopK {
      */
     @Override
     public AddResult add(String key, int increment) {
-        byte[] keyBytes = key.getBytes();
-        long itemFingerprint = hash(keyBytes);
-        int maxCount = 0;
-
-        for (int i = 0; i < depth; i++) {
-            int bucketNumber = Math.abs(hash(keyBytes)) % width;
-            Bucket bucket = buckets[i][bucketNumber];
-
-            synchronized (bucket) {
-                if (bucket.count == 0) {
-                    bucket.fingerprint = itemFingerprint;
-                    bucket.count = increment;
-                    maxCount = Math.max(maxCount, increment);
-                } else if (bucket.fingerprint == itemFingerprint) {
-                    bucket.count += increment;
-                    maxCount = Math.max(maxCount, bucket.count);
-                } else {
-                    for (int j = 0; j < increment; j++) {
-                        double decay = bucket.count < LOOKUP_TABLE_SIZE ?
-                                lookupTable[bucket.count] :
-                                lookupTable[LOOKUP_TABLE_SIZE - 1];
-                        if (random.nextDouble() < decay) {
-                            bucket.count--;
-                            if (bucket.count == 0) {
-                                bucket.fingerprint = itemFingerprint;
-                                bucket.count = increment - j;
-                                maxCount = Math.max(maxCount, bucket.count);
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
+        int maxCount = buckets.add(hash(key), increment);
+        total.add(increment);
+
+        if (maxCount < minCount) {
+            return TopKHeap.NOT_HOT;
         }
+        return topK.offer(key, maxCount);
+    }
 
-        total += increment;
+    /**
+     * 添加数字 key，只有计数达到阈值时才创建 key 字符串
+     */
+    @Override
+    public AddResult add(long key, int increment) {
+        int maxCount = buckets.add(hash(key), increment);
+        total.add(increment);
 
         if (maxCount < minCount) {
-            return new AddResult(null, false, null);
+            return TopKHeap.NOT_HOT;
         }
+        return topK.offer(Long.toString(key), maxCount);
+    }
 
-        synchronized (minHeap) {
-            boolean isHot = false;
-            String expelled = null;
-
-            Optional<Node> existing = minHeap.stream()
-                    .filter(n -> n.key.equals(key))
-                    .findFirst();
-
-            if (existing.isPresent()) {
-                minHeap.remove(existing.get());
-                minHeap.add(new Node(key, maxCount));
-                isHot = true;
-            } else {
-                if (minHeap.size() < k || maxCount >= Objects.requireNonNull(minHeap.peek()).count) {
-                    Node newNode = new Node(key, maxCount);
-                    if (minHeap.size() >= k) {
-                        expelled = minHeap.poll().key;
-                        expelledQueue.offer(new Item(expelled, maxCount));
-                    }
-                    minHeap.add(newNode);
-                    isHot = true;
-                }
+    /**
+     * 批量添加元素，每个 key 写桶的开销与增量大小无关，TopK 只加锁一次
+     * @param increments key -> 计数增量
+     * @return 进入或已在 TopK 中的 key 的结果
+     */
+    @Override
+    public List<AddResult> addAll(Map<String, Integer> increments) {
+        Map<String, Integer> candidates = new HashMap<>();
+        long sum = 0;
+        for (Map.Entry<String, Integer> entry : increments.entrySet()) {
+            int increment = entry.getValue();
+            if (increment <= 0) {
+                continue;
+            }
+            int maxCount = buckets.add(hash(entry.getKey()), increment);
+            sum += increment;
+            if (maxCount >= minCount) {
+                candidates.put(entry.getKey(), maxCount);
             }
-
-            return new AddResult(expelled, isHot, key);
         }
+        total.add(sum);
+        return topK.offerAll(candidates);
     }
 
     /**
@@ -150,14 +122,7 @@ public class HeavyKeeper implements TopK {
      */
     @Override
     public List<Item> list() {
-        synchronized (minHeap) {
-            List<Item> result = new ArrayList<>(minHeap.size());
-            for (Node node : minHeap) {
-                result.add(new Item(node.key, node.count));
-            }
-            result.sort((a, b) -> Integer.compare(b.count(), a.count()));
-            return result;
-        }
+        return topK.list();
     }
 
     /**
@@ -166,7 +131,7 @@ public class HeavyKeeper implements TopK {
      */
     @Override
     public BlockingQueue<Item> expelled() {
-        return expelledQueue;
+        return topK.expelled();
     }
 
     /**
@@ -174,24 +139,63 @@ public class HeavyKeeper implements TopK {
      */
     @Override
     public void fading() {
-        for (Bucket[] row : buckets) {
-            for (Bucket bucket : row) {
-                synchronized (bucket) {
-                    bucket.count = bucket.count >> 1;
-                }
-            }
-        }
+        int occupied = buckets.fading();
+        topK.halve();
+
+        // 衰减期间并发写入的少量计数允许丢失
+        long current = total.sumThenReset();
+        total.add(current >> 1);
+        stats = SketchStats.of(buckets, occupied, buckets.drainCollisions(), current - lastTotal);
+        lastTotal = current >> 1;
+    }
 
-        synchronized (minHeap) {
-            PriorityQueue<Node> newHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
-            for (Node node : minHeap) {
-                newHeap.add(new Node(node.key, node.count >> 1));
-            }
-            minHeap.clear();
-            minHeap.addAll(newHeap);
-        }
+    @Override
+    public void addListener(HotKeyListener listener) {
+        topK.addListener(listener);
+    }
+
+    @Override
+    public long droppedEvents() {
+        return topK.droppedEvents();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return buckets.bytes() + topK.estimatedBytes();
+    }
+
+    @Override
+    public SketchStats sketchStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        topK.close();
+    }
+
+    @Override
+    public int minHotCount() {
+        return topK.minCount();
+    }
 
-        total = total >> 1;
+    @Override
+    public long replacements() {
+        return buckets.replacements();
+    }
+
+    /**
+     * key 当前是否在 TopK 中
+     */
+    boolean contains(String key) {
+        return topK.contains(key);
+    }
+
+    /**
+     * key 在 TopK 中的计数，不在 TopK 中时返回 0
+     */
+    int count(String key) {
+        return topK.count(key);
     }
 
     /**
@@ -200,29 +204,33 @@ public class HeavyKeeper implements TopK {
      */
     @Override
     public long total() {
-        return total;
-    }
-
-    // 桶类，用于存储元素指纹和计数
-    private static class Bucket {
-        long fingerprint;
-        int count;
+        return total.sum();
     }
 
-    // 节点类，用于最小堆中存储元素键和计数
-    private static class Node {
-        final String key;
-        final int count;
-
-        Node(String key, int count) {
-            this.key = key;
-            this.count = count;
+    // 哈希函数，生成元素的 64 位哈希值
+    // 博客 ID 等数字 key 直接混合数值，不分配字节数组；其余 key 用 murmur64
+    static long hash(String key) {
+        int length = key.length();
+        if (length == 0 || length > 18 || (length > 1 && key.charAt(0) == '0')) {
+            return HashUtil.murmur64(key.getBytes(StandardCharsets.UTF_8));
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = key.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return HashUtil.murmur64(key.getBytes(StandardCharsets.UTF_8));
+            }
+            value = value * 10 + digit;
         }
+        return BucketTable.mix64(value);
     }
 
-    // 哈希函数，生成元素的哈希值
-    private static int hash(byte[] data) {
-        return HashUtil.murmur32(data);
+    // 与 hash(Long.toString(key)) 结果相同
+    static long hash(long key) {
+        if (key < 0 || key >= NUMERIC_KEY_LIMIT) {
+            return hash(Long.toString(key));
+        }
+        return BucketTable.mix64(key);
     }
 
 }
@@ -0,0 +1,320 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.constant.ThumbConstant;
+import com.allen.thumb.mapper.ThumbMapper;
+import com.allen.thumb.model.entity.Thumb;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热门博客的点赞用户集合
+ * <p>
+ * 本地缓存以 thumb:{userId}:{blogId} 为 key，博客成为热 Key 后，每个读者仍要等自己的条目变热才能命中。
+ * 这里按博客维护点赞用户：博客进入 TopK 后从数据库加载它的全部点赞用户，
+ * 之后本节点的点赞和取消直接更新，其他节点的修改通过失效广播得知，该用户的结果记为未知，交给正常的查询路径。
+ * 博客退出 TopK 后丢弃集合。集合最长使用 maxAge 后重新加载，广播丢失或 MQ 积压导致的偏差不会一直保留。
+ * <p>
+ * MQ 模式下点赞先写 Redis、异步入库，加载时数据库可能还没有最近的点赞，
+ * 因此最近 pendingWindow 内发生修改的用户在加载完成后同样按本节点的结果或未知处理。
+ * 最近的修改按博客索引，总条数超过 maxRecentChanges 时淘汰整篇博客的记录；
+ * 淘汰后 pendingWindow 内加载的集合可能缺少未入库的修改，不启用，等待下次刷新重新加载。
+ *
+ * @author KiveAllen
+ */
+@Component
+@Slf4j
+public class HotBlogLikers {
+
+    // 加载后的修改超过集合大小的该比例时重新加载
+    private static final int RELOAD_CHANGE_RATIO = 8;
+
+    private static final int MIN_RELOAD_CHANGES = 1024;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private ThumbMapper thumbMapper;
+
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private InvalidationBus invalidationBus;
+
+    // 可以在本地判断的博客
+    private final Map<Long, LikerSet> blogs = new ConcurrentHashMap<>();
+
+    // 正在加载的博客，加载期间的修改同样记录进去
+    private final Map<Long, LikerSet> loading = new ConcurrentHashMap<>();
+
+    // 点赞用户超过上限、不在本地维护的热门博客
+    private final Set<Long> oversized = ConcurrentHashMap.newKeySet();
+
+    // 最近的修改 blogId -> userId -> 结果，覆盖数据库写入的延迟
+    private Cache<Long, Map<Long, RecentChange>> recentChanges;
+
+    // 最近一次因条数超限淘汰修改记录的时间，0 表示没有淘汰过
+    private volatile long recentChangesEvictedAt;
+
+    // 在本地判断出结果的次数
+    private final LongAdder hits = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        HotKeyProperties.HotBlog config = hotKeyProperties.getHotBlog();
+        recentChanges = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxRecentChanges())
+                .weigher((Long blogId, Map<Long, RecentChange> changes) -> changes.size())
+                .expireAfterWrite(config.getPendingWindow())
+                .evictionListener((Long blogId, Map<Long, RecentChange> changes, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        recentChangesEvictedAt = System.nanoTime();
+                    }
+                })
+                .build();
+        invalidationBus.subscribe(this::onRemoteChange);
+    }
+
+    public boolean isEnabled() {
+        return hotKeyProperties.getHotBlog().isEnabled();
+    }
+
+    /**
+     * 判断热门博客是否已点赞，已点赞的加入 thumbed
+     *
+     * @return 无法在本地判断的博客
+     */
+    public List<Long> resolve(Long userId, Collection<Long> blogIds, Set<Long> thumbed) {
+        if (blogs.isEmpty()) {
+            return new ArrayList<>(blogIds);
+        }
+        List<Long> unresolved = new ArrayList<>(blogIds.size());
+        int resolved = 0;
+        for (Long blogId : blogIds) {
+            LikerSet likers = blogs.get(blogId);
+            Boolean liked = likers == null ? null : likers.contains(userId);
+            if (liked == null) {
+                unresolved.add(blogId);
+                continue;
+            }
+            if (liked) {
+                thumbed.add(blogId);
+            }
+            // 不经过 CacheManager 的访问也要计入热 Key 检测，否则博客会因为命中这里而退出 TopK
+            cacheManager.recordAccess(blogId);
+            resolved++;
+        }
+        hits.add(resolved);
+        return unresolved;
+    }
+
+    /**
+     * 点赞成功后调用，须在写入 Redis 之后
+     */
+    public void onThumb(Long userId, Long blogId) {
+        record(userId, blogId, LikerSet.State.LIKED);
+    }
+
+    /**
+     * 取消点赞成功后调用，须在写入 Redis 之后
+     */
+    public void onUnthumb(Long userId, Long blogId) {
+        record(userId, blogId, LikerSet.State.UNLIKED);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public int blogCount() {
+        return blogs.size();
+    }
+
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (LikerSet likers : blogs.values()) {
+            bytes += likers.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 按当前 TopK 调整维护的博客：新的热门博客开始加载，退出 TopK 的丢弃，加载后修改过多或超过 maxAge 的重新加载
+     */
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        if (!isEnabled()) {
+            blogs.clear();
+            oversized.clear();
+            recentChanges.invalidateAll();
+            return;
+        }
+        pruneRecentChanges();
+        Set<Long> hotBlogs = hotBlogs();
+        blogs.keySet().retainAll(hotBlogs);
+        oversized.retainAll(hotBlogs);
+        if (recentChangesEvicted()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long maxAge = hotKeyProperties.getHotBlog().getMaxAge().toNanos();
+        for (Long blogId : hotBlogs) {
+            LikerSet likers = blogs.get(blogId);
+            boolean stale = likers != null
+                    && (likers.changes() > Math.max(MIN_RELOAD_CHANGES, likers.size() / RELOAD_CHANGE_RATIO)
+                    || now - likers.loadedAt() > maxAge);
+            if ((likers == null || stale) && !oversized.contains(blogId) && !loading.containsKey(blogId)) {
+                load(blogId);
+            }
+        }
+    }
+
+    // TopK 中计数最高的 maxBlogs 篇博客
+    private Set<Long> hotBlogs() {
+        List<Item> items = new ArrayList<>(cacheManager.hotKeys());
+        items.sort(Comparator.comparingInt(Item::count).reversed());
+        Set<Long> hotBlogs = new HashSet<>();
+        int maxBlogs = hotKeyProperties.getHotBlog().getMaxBlogs();
+        for (Item item : items) {
+            if (hotBlogs.size() >= maxBlogs) {
+                break;
+            }
+            try {
+                hotBlogs.add(Long.valueOf(item.key()));
+            } catch (NumberFormatException e) {
+                // 不是博客 id
+            }
+        }
+        return hotBlogs;
+    }
+
+    private void load(Long blogId) {
+        LikerSet likers = new LikerSet();
+        // 先登记再查询，查询期间的修改不会丢
+        loading.put(blogId, likers);
+        Thread.startVirtualThread(() -> {
+            try {
+                LambdaQueryWrapper<Thumb> query = new LambdaQueryWrapper<Thumb>().eq(Thumb::getBlogId, blogId);
+                long count = thumbMapper.selectCount(query);
+                if (count > hotKeyProperties.getHotBlog().getMaxLikers()) {
+                    log.info("热门博客 {} 点赞用户数 {} 超过上限，不在本地维护", blogId, count);
+                    oversized.add(blogId);
+                    blogs.remove(blogId);
+                    return;
+                }
+                List<Object> userIds = thumbMapper.selectObjs(query.select(Thumb::getUserId));
+                long[] ids = new long[userIds.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = ((Number) userIds.get(i)).longValue();
+                }
+                if (recentChangesEvicted()) {
+                    log.debug("最近的修改记录有淘汰，热门博客 {} 暂不启用", blogId);
+                    return;
+                }
+                applyRecentChanges(blogId, likers);
+                likers.load(ids);
+                blogs.put(blogId, likers);
+                log.info("热门博客 {} 加载 {} 个点赞用户", blogId, ids.length);
+            } catch (Exception e) {
+                log.warn("热门博客 {} 点赞用户加载失败", blogId, e);
+            } finally {
+                loading.remove(blogId, likers);
+            }
+        });
+    }
+
+    // 最近的修改可能还没有入库，以本节点记录的结果为准
+    private void applyRecentChanges(Long blogId, LikerSet likers) {
+        Map<Long, RecentChange> changes = recentChanges.getIfPresent(blogId);
+        if (changes == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long window = hotKeyProperties.getHotBlog().getPendingWindow().toNanos();
+        changes.forEach((userId, change) -> {
+            if (now - change.at() < window) {
+                likers.recordIfAbsent(userId, change.state());
+            }
+        });
+    }
+
+    // 被淘汰的修改记录在 pendingWindow 内可能还没有入库
+    private boolean recentChangesEvicted() {
+        long evictedAt = recentChangesEvictedAt;
+        return evictedAt != 0
+                && System.nanoTime() - evictedAt < hotKeyProperties.getHotBlog().getPendingWindow().toNanos();
+    }
+
+    // 去掉超过 pendingWindow 的修改，持续有修改的博客整体不会过期；经 compute 修改以便重新计算权重
+    private void pruneRecentChanges() {
+        long now = System.nanoTime();
+        long window = hotKeyProperties.getHotBlog().getPendingWindow().toNanos();
+        for (Long blogId : recentChanges.asMap().keySet()) {
+            recentChanges.asMap().computeIfPresent(blogId, (id, changes) -> {
+                changes.values().removeIf(change -> now - change.at() >= window);
+                return changes.isEmpty() ? null : changes;
+            });
+        }
+    }
+
+    private void record(Long userId, Long blogId, LikerSet.State state) {
+        if (!isEnabled()) {
+            return;
+        }
+        RecentChange change = new RecentChange(state, System.nanoTime());
+        recentChanges.asMap().compute(blogId, (id, changes) -> {
+            Map<Long, RecentChange> updated = changes == null ? new ConcurrentHashMap<>() : changes;
+            updated.put(userId, change);
+            return updated;
+        });
+        LikerSet likers = blogs.get(blogId);
+        if (likers != null) {
+            likers.record(userId, state);
+        }
+        LikerSet pending = loading.get(blogId);
+        if (pending != null) {
+            pending.record(userId, state);
+        }
+    }
+
+    // 其他节点修改了 thumb:{userId}:{blogId}，不知道是点赞还是取消
+    private void onRemoteChange(Set<String> compositeKeys) {
+        for (String compositeKey : compositeKeys) {
+            if (!compositeKey.startsWith(ThumbConstant.USER_THUMB_KEY_PREFIX)) {
+                continue;
+            }
+            String[] parts = compositeKey.substring(ThumbConstant.USER_THUMB_KEY_PREFIX.length()).split(":");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                record(Long.valueOf(parts[0]), Long.valueOf(parts[1]), LikerSet.State.UNKNOWN);
+            } catch (NumberFormatException e) {
+                log.debug("忽略无法解析的失效 key {}", compositeKey);
+            }
+        }
+    }
+
+    private record RecentChange(LikerSet.State state, long at) {
+    }
+}
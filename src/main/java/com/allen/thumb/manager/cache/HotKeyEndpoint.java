@@ -0,0 +1,126 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import jakarta.annotation.Resource;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 热 Key 检测的 actuator 端点
+ * <p>
+ * GET /actuator/hotkey 查看当前配置和检测器状态；
+ * POST /actuator/hotkey 修改配置，只需传入要修改的字段，例如 {"width": 200000, "fadingInterval": "10s"}；
+ * 参数由 CacheManager#reconfigure 校验，不合法时整个请求不生效。
+ *
+ * @author KiveAllen
+ */
+@Component
+@Endpoint(id = "hotkey")
+public class HotKeyEndpoint {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private TrackingRedisClient trackingRedisClient;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        TopK detector = cacheManager.getHotKeyDetector();
+        SketchStats stats = detector.sketchStats();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("config", hotKeyProperties);
+        status.put("hotKeys", detector.list().size());
+        status.put("total", detector.total());
+        status.put("minHotCount", detector.minHotCount());
+        status.put("replacements", detector.replacements());
+        status.put("droppedEvents", detector.droppedEvents());
+        status.put("estimatedBytes", detector.estimatedBytes());
+        status.put("sketch", stats);
+        status.put("localCacheSize", cacheManager.localCacheSize());
+        status.put("localCacheWeight", cacheManager.localCacheWeight());
+        OffHeapThumbStore offHeapStore = cacheManager.getOffHeapStore();
+        if (offHeapStore != null) {
+            status.put("offHeap", Map.of("size", offHeapStore.size(), "bytes", offHeapStore.bytes()));
+        }
+        status.put("tracking", trackingStatus());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable TopKAlgorithm algorithm,
+                                         @Nullable Integer k,
+                                         @Nullable Integer width,
+                                         @Nullable Integer depth,
+                                         @Nullable Double decay,
+                                         @Nullable Integer minCount,
+                                         @Nullable Duration fadingInterval,
+                                         @Nullable Integer windowCount,
+                                         @Nullable Long localCacheMaximumSize,
+                                         @Nullable DataSize localCacheMaximumWeight,
+                                         @Nullable Duration localCacheExpireAfterWrite,
+                                         @Nullable Boolean autoSize) {
+        cacheManager.reconfigure(properties -> {
+            if (algorithm != null) {
+                properties.setAlgorithm(algorithm);
+            }
+            if (k != null) {
+                properties.setK(k);
+            }
+            if (width != null) {
+                properties.setWidth(width);
+            }
+            if (depth != null) {
+                properties.setDepth(depth);
+            }
+            if (decay != null) {
+                properties.setDecay(decay);
+            }
+            if (minCount != null) {
+                properties.setMinCount(minCount);
+            }
+            if (fadingInterval != null) {
+                properties.setFadingInterval(fadingInterval);
+            }
+            if (windowCount != null) {
+                properties.setWindowCount(windowCount);
+            }
+            if (localCacheMaximumSize != null) {
+                properties.getLocalCache().setMaximumSize(localCacheMaximumSize);
+            }
+            if (localCacheMaximumWeight != null) {
+                properties.getLocalCache().setMaximumWeight(localCacheMaximumWeight);
+            }
+            if (localCacheExpireAfterWrite != null) {
+                properties.getLocalCache().setExpireAfterWrite(localCacheExpireAfterWrite);
+            }
+            if (autoSize != null) {
+                properties.getAutoSize().setEnabled(autoSize);
+            }
+        });
+        return status();
+    }
+
+    private Map<String, Object> trackingStatus() {
+        Map<String, Object> tracking = new LinkedHashMap<>();
+        tracking.put("enabled", trackingRedisClient.isEnabled());
+        if (trackingRedisClient.isEnabled()) {
+            tracking.put("size", trackingRedisClient.size());
+            tracking.put("hitRatio", trackingRedisClient.hitRatio());
+            tracking.put("invalidations", trackingRedisClient.stats().getInvalidationCount());
+            tracking.put("fallbacks", trackingRedisClient.fallbacks());
+        }
+        return tracking;
+    }
+}
@@ -0,0 +1,101 @@
+package com.allen.thumb.manager.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热 Key 事件分发器
+ * <p>
+ * add 线程只把事件放进有界队列，由单独的虚拟线程回调监听器。
+ * 没有注册监听器时不入队，队列满时直接丢弃并计数。
+ *
+ * @author KiveAllen
+ */
+@Slf4j
+final class HotKeyEventDispatcher {
+
+    // 分发缓冲区大小
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private final BlockingQueue<Event> events;
+
+    private final List<HotKeyListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile Thread worker;
+
+    HotKeyEventDispatcher(int capacity) {
+        this.events = new ArrayBlockingQueue<>(capacity);
+    }
+
+    synchronized void addListener(HotKeyListener listener) {
+        listeners.add(listener);
+        if (worker == null) {
+            worker = Thread.ofVirtual().name("hot-key-dispatcher").start(this::dispatchLoop);
+        }
+    }
+
+    void hot(Item item) {
+        publish(new Event(true, item));
+    }
+
+    void expelled(Item item) {
+        publish(new Event(false, item));
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 停止分发线程，未分发的事件直接丢弃
+     */
+    synchronized void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        listeners.clear();
+        events.clear();
+    }
+
+    private void publish(Event event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (!events.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Event event;
+            try {
+                event = events.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (HotKeyListener listener : listeners) {
+                try {
+                    if (event.hot()) {
+                        listener.onHot(event.item());
+                    } else {
+                        listener.onExpelled(event.item());
+                    }
+                } catch (Exception e) {
+                    log.error("热 Key 事件处理失败 {}", event, e);
+                }
+            }
+        }
+    }
+
+    private record Event(boolean hot, Item item) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.allen.thumb.manager.cache;
+
+/**
+ * 热 Key 变化监听器
+ * <p>
+ * 回调在独立的分发线程中执行，不占用 add 的调用线程；回调应尽快返回，
+ * 分发缓冲区满时新事件会被丢弃并计入 {@link TopK#droppedEvents()}
+ *
+ * @author KiveAllen
+ */
+public interface HotKeyListener {
+
+    /**
+     * key 进入 TopK
+     */
+    default void onHot(Item item) {
+    }
+
+    /**
+     * key 被挤出 TopK
+     */
+    default void onExpelled(Item item) {
+    }
+}
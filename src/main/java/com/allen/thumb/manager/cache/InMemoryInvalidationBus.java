@@ -0,0 +1,46 @@
+package com.allen.thumb.manager.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的失效广播
+ * <p>
+ * 连接到同一个 {@link Hub} 的实例互相投递失效，用于单节点部署和在一个 JVM 里模拟多个节点的测试。
+ *
+ * @author KiveAllen
+ */
+public class InMemoryInvalidationBus extends BatchingInvalidationBus {
+
+    private final Hub hub;
+
+    public InMemoryInvalidationBus(Hub hub, Duration flushInterval, int maxBatchSize) {
+        super(flushInterval, maxBatchSize);
+        this.hub = hub;
+        hub.nodes.add(this);
+    }
+
+    @Override
+    protected void send(Set<String> keys) {
+        for (InMemoryInvalidationBus node : hub.nodes) {
+            if (node != this) {
+                node.deliver(keys);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        hub.nodes.remove(this);
+    }
+
+    /**
+     * 模拟的广播频道
+     */
+    public static class Hub {
+        private final List<InMemoryInvalidationBus> nodes = new CopyOnWriteArrayList<>();
+    }
+}
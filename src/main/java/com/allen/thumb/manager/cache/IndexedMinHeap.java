@@ -0,0 +1,261 @@
+package com.allen.thumb.manager.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带索引的最小堆，用于维护 TopK 成员
+ * <p>
+ * key 到节点（节点记录自己所在的槽位）的映射保存在 ConcurrentHashMap 中，查询成员无需加锁。
+ * 每个节点有两个计数：count 是实时计数，成员命中时由调用方无锁地单调抬高；
+ * heapCount 是堆排序所用的计数，只在持锁时更新。由于 count 始终不小于 heapCount，
+ * 取堆顶前先把堆顶的 heapCount 修正为 count 并下沉，直到堆顶稳定，即可得到真实的最小值。
+ * <p>
+ * 除 {@link #get(String)} 和 {@link Node#raise(int)} 外，其余方法都需要调用方持有外部锁。
+ *
+ * @author KiveAllen
+ */
+final class IndexedMinHeap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Node> index = new ConcurrentHashMap<>();
+
+    private Node[] heap;
+
+    private int size;
+
+    IndexedMinHeap(int k) {
+        this.heap = new Node[Math.max(1, Math.min(k, INITIAL_CAPACITY))];
+    }
+
+    /**
+     * 无锁查询成员
+     */
+    Node get(String key) {
+        return index.get(key);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 修正堆顶后返回真实的最小节点，堆为空时返回 null
+     */
+    Node peek() {
+        while (size > 0) {
+            Node top = heap[0];
+            int live = top.count;
+            if (live == top.heapCount) {
+                return top;
+            }
+            top.heapCount = live;
+            siftDown(0);
+        }
+        return null;
+    }
+
+    /**
+     * 移除并返回最小节点
+     */
+    Node poll() {
+        Node top = peek();
+        if (top == null) {
+            return null;
+        }
+        removeAt(0);
+        index.remove(top.key);
+        return top;
+    }
+
+    /**
+     * 插入新节点
+     */
+    Node offer(String key, int count) {
+        Node node = new Node(key, count);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size << 1);
+        }
+        node.slot = size;
+        heap[size++] = node;
+        siftUp(node.slot);
+        index.put(key, node);
+        return node;
+    }
+
+    /**
+     * 在原位置抬高节点计数，O(log k)
+     */
+    void increaseKey(Node node, int count) {
+        node.raise(count);
+        if (node.slot < 0) {
+            return;
+        }
+        int live = node.count;
+        if (live > node.heapCount) {
+            node.heapCount = live;
+            siftDown(node.slot);
+        }
+    }
+
+    /**
+     * 所有节点计数减半，减半不改变堆序，无需重建
+     */
+    void halve() {
+        for (int i = 0; i < size; i++) {
+            Node node = heap[i];
+            node.heapCount >>= 1;
+            node.halve();
+        }
+    }
+
+    /**
+     * 按新的计数重新打分，计数为 0 的节点移出堆，其余节点 O(k) 重新建堆
+     *
+     * @param counts 新计数，不在其中的节点保持原计数
+     * @return 被移出的节点
+     */
+    List<Node> rescore(Map<String, Integer> counts) {
+        List<Node> removed = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Node node = heap[i];
+            Integer count = counts.get(node.key);
+            if (count != null) {
+                node.reset(count);
+            }
+            if (node.count == 0) {
+                node.slot = -1;
+                index.remove(node.key);
+                removed.add(node);
+            } else {
+                heap[kept++] = node;
+            }
+        }
+        Arrays.fill(heap, kept, size, null);
+        size = kept;
+        for (int i = 0; i < size; i++) {
+            heap[i].slot = i;
+        }
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        return removed;
+    }
+
+    /**
+     * 按实时计数导出当前成员
+     */
+    List<Item> items() {
+        List<Item> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Item(heap[i].key, heap[i].count));
+        }
+        return result;
+    }
+
+    private void removeAt(int slot) {
+        Node removed = heap[slot];
+        removed.slot = -1;
+        Node last = heap[--size];
+        heap[size] = null;
+        if (slot < size) {
+            last.slot = slot;
+            heap[slot] = last;
+            siftDown(slot);
+            siftUp(last.slot);
+        }
+    }
+
+    private void siftUp(int slot) {
+        Node node = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            Node p = heap[parent];
+            if (p.heapCount <= node.heapCount) {
+                break;
+            }
+            heap[slot] = p;
+            p.slot = slot;
+            slot = parent;
+        }
+        heap[slot] = node;
+        node.slot = slot;
+    }
+
+    private void siftDown(int slot) {
+        Node node = heap[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = (slot << 1) + 1;
+            int right = child + 1;
+            if (right < size && heap[right].heapCount < heap[child].heapCount) {
+                child = right;
+            }
+            Node c = heap[child];
+            if (node.heapCount <= c.heapCount) {
+                break;
+            }
+            heap[slot] = c;
+            c.slot = slot;
+            slot = child;
+        }
+        heap[slot] = node;
+        node.slot = slot;
+    }
+
+    // 堆节点，count 可无锁抬高，heapCount 和 slot 只在持锁时读写
+    static final class Node {
+
+        private static final VarHandle COUNT;
+
+        static {
+            try {
+                COUNT = MethodHandles.lookup().findVarHandle(Node.class, "count", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final String key;
+        volatile int count;
+        int heapCount;
+        int slot;
+
+        Node(String key, int count) {
+            this.key = key;
+            this.count = count;
+            this.heapCount = count;
+        }
+
+        /**
+         * 无锁地把实时计数抬高到 newCount
+         */
+        void raise(int newCount) {
+            int current;
+            while ((current = count) < newCount) {
+                if (COUNT.compareAndSet(this, current, newCount)) {
+                    return;
+                }
+            }
+        }
+
+        private void reset(int newCount) {
+            count = newCount;
+            heapCount = newCount;
+        }
+
+        private void halve() {
+            int current;
+            do {
+                current = count;
+            } while (!COUNT.compareAndSet(this, current, current >> 1));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存失效广播
+ * <p>
+ * 某个节点修改了 Redis 中的数据后发布失效，其他节点收到后清理各自的本地缓存。
+ * 发布是异步的，短时间内同一个 key 的多次失效会合并成一次。
+ *
+ * @author KiveAllen
+ */
+public interface InvalidationBus {
+
+    /**
+     * 发布失效
+     *
+     * @param key 本地缓存的 key
+     */
+    void publish(String key);
+
+    /**
+     * 注册失效处理，不会收到本节点自己发布的失效
+     */
+    void subscribe(Consumer<Set<String>> handler);
+
+    /**
+     * 发出未发送的失效并停止后台线程
+     */
+    void close();
+}
@@ -0,0 +1,85 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一篇博客的点赞用户集合
+ * <p>
+ * 从数据库加载的 userId 排好序放在 long[] 中，每个用户 8 字节，查询用二分查找；
+ * 加载开始之后的点赞和取消记在 changes 中，优先于加载的结果。
+ * 其他节点的修改只知道发生过、不知道结果，记为 UNKNOWN，这些用户无法在本地判断。
+ *
+ * @author KiveAllen
+ */
+final class LikerSet {
+
+    enum State {
+        LIKED, UNLIKED, UNKNOWN
+    }
+
+    // 加载完成前为 null
+    private volatile long[] userIds;
+
+    // 加载完成的时间
+    private volatile long loadedAt;
+
+    private final ConcurrentHashMap<Long, State> changes = new ConcurrentHashMap<>();
+
+    void record(long userId, State state) {
+        changes.put(userId, state);
+    }
+
+    /**
+     * 加载开始前发生、可能未写入数据库的修改，加载期间已有更新的记录时忽略
+     */
+    void recordIfAbsent(long userId, State state) {
+        changes.putIfAbsent(userId, state);
+    }
+
+    /**
+     * @param userIds 加载的点赞用户，会被排序
+     */
+    void load(long[] userIds) {
+        Arrays.sort(userIds);
+        this.loadedAt = System.nanoTime();
+        this.userIds = userIds;
+    }
+
+    long loadedAt() {
+        return loadedAt;
+    }
+
+    boolean isLoaded() {
+        return userIds != null;
+    }
+
+    /**
+     * @return 是否点赞，未加载完成或结果未知时返回 null
+     */
+    Boolean contains(long userId) {
+        long[] ids = userIds;
+        if (ids == null) {
+            return null;
+        }
+        State state = changes.get(userId);
+        if (state != null) {
+            return state == State.UNKNOWN ? null : state == State.LIKED;
+        }
+        return Arrays.binarySearch(ids, userId) >= 0;
+    }
+
+    int size() {
+        long[] ids = userIds;
+        return ids == null ? 0 : ids.length;
+    }
+
+    int changes() {
+        return changes.size();
+    }
+
+    // 数组 + ConcurrentHashMap 节点和装箱的 key
+    long bytes() {
+        return size() * 8L + changes.size() * 64L;
+    }
+}
@@ -0,0 +1,408 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.constant.ThumbConstant;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * 堆外的点赞状态缓存
+ * <p>
+ * 只缓存 thumb:{userId} 中值为整数的字段，key 为 (userId, blogId) 两个 long，值为 long，
+ * 全部存放在直接内存中，几百万条目也不会增加 GC 的扫描和复制负担。
+ * <p>
+ * 按 key 的哈希分成多个段，每段是一个线性探测的开放寻址表，一个槽位 32 字节：
+ * userId、blogId、值、写入时间（秒，0 表示空槽）。删除采用后移删除，不留墓碑。
+ * 读使用 StampedLock 的乐观读，写加写锁，不使用 synchronized，虚拟线程不会固定载体线程。
+ * 段满时随机抽样几个槽位，淘汰其中写入最早的一个。
+ *
+ * @author KiveAllen
+ */
+public class OffHeapThumbStore {
+
+    private static final int SLOT_BYTES = 32;
+
+    private static final int USER_OFFSET = 0;
+    private static final int BLOG_OFFSET = 8;
+    private static final int VALUE_OFFSET = 16;
+    private static final int WRITTEN_OFFSET = 24;
+
+    // 段内负载因子上限
+    private static final double LOAD_FACTOR = 0.75;
+
+    // 淘汰时抽样的槽位数
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final Segment[] segments;
+
+    private final int segmentMask;
+
+    private final long startNanos = System.nanoTime();
+
+    // 写入后过期时间（秒）
+    private volatile long expireAfterWriteSeconds;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacityBytes     直接内存总量
+     * @param segmentCount      段数，取整为 2 的幂
+     * @param expireAfterWrite  写入后过期时间
+     */
+    public OffHeapThumbStore(long capacityBytes, int segmentCount, Duration expireAfterWrite) {
+        int count = Integer.highestOneBit(Math.max(1, segmentCount));
+        long slotsPerSegment = Long.highestOneBit(Math.max(16, capacityBytes / SLOT_BYTES / count));
+        if (slotsPerSegment * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("单段超过 2GB，请增加段数");
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((int) slotsPerSegment);
+        }
+        this.segmentMask = count - 1;
+        setExpireAfterWrite(expireAfterWrite);
+    }
+
+    /**
+     * 按 Redis 的 hash key 和字段读取，不是点赞状态的 key 或不存在时返回 null
+     */
+    public Long get(String hashKey, String field) {
+        long userId = userId(hashKey);
+        long blogId = blogId(field);
+        if (userId < 0 || blogId < 0) {
+            return null;
+        }
+        long hash = hash(userId, blogId);
+        Long value = segment(hash).get(userId, blogId, hash, now());
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    /**
+     * 写入，值不是整数或 key 不是点赞状态时不写入并返回 false
+     */
+    public boolean put(String hashKey, String field, Object value) {
+        long userId = userId(hashKey);
+        long blogId = blogId(field);
+        if (userId < 0 || blogId < 0 || !(value instanceof Long || value instanceof Integer)) {
+            return false;
+        }
+        long hash = hash(userId, blogId);
+        segment(hash).put(userId, blogId, hash, ((Number) value).longValue(), now(), false);
+        return true;
+    }
+
+    /**
+     * 已存在时更新值，值不是整数时删除
+     */
+    public void replaceIfPresent(String hashKey, String field, Object value) {
+        long userId = userId(hashKey);
+        long blogId = blogId(field);
+        if (userId < 0 || blogId < 0) {
+            return;
+        }
+        long hash = hash(userId, blogId);
+        if (value instanceof Long || value instanceof Integer) {
+            segment(hash).put(userId, blogId, hash, ((Number) value).longValue(), now(), true);
+        } else {
+            segment(hash).remove(userId, blogId, hash);
+        }
+    }
+
+    public void invalidate(String hashKey, String field) {
+        long userId = userId(hashKey);
+        long blogId = blogId(field);
+        if (userId >= 0 && blogId >= 0) {
+            long hash = hash(userId, blogId);
+            segment(hash).remove(userId, blogId, hash);
+        }
+    }
+
+    /**
+     * 按复合 key thumb:{userId}:{blogId} 删除
+     */
+    public void invalidate(String compositeKey) {
+        int separator = compositeKey.lastIndexOf(':');
+        if (separator > 0) {
+            invalidate(compositeKey.substring(0, separator), compositeKey.substring(separator + 1));
+        }
+    }
+
+    /**
+     * 遍历未过期条目的复合 key thumb:{userId}:{blogId}，最多 limit 个
+     */
+    public void forEachKey(int limit, Consumer<String> action) {
+        int now = now();
+        int remaining = limit;
+        for (Segment segment : segments) {
+            remaining -= segment.forEachKey(remaining, now, action);
+            if (remaining <= 0) {
+                return;
+            }
+        }
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWriteSeconds = Math.max(1, expireAfterWrite.toSeconds());
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * 点赞状态 key 的命中次数，其他 key 不计入
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long bytes() {
+        return (long) segments.length * segments[0].buffer.capacity();
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> 32) & segmentMask];
+    }
+
+    // 写入时间，从 1 开始，0 表示空槽
+    private int now() {
+        return (int) ((System.nanoTime() - startNanos) / 1_000_000_000L) + 1;
+    }
+
+    private static long hash(long userId, long blogId) {
+        return BucketTable.mix64(userId * 0x9E3779B97F4A7C15L ^ blogId);
+    }
+
+    // thumb:{userId} 中的 userId，不是点赞状态的 key 时返回 -1
+    private static long userId(String hashKey) {
+        if (!hashKey.startsWith(ThumbConstant.USER_THUMB_KEY_PREFIX)) {
+            return -1;
+        }
+        return parse(hashKey, ThumbConstant.USER_THUMB_KEY_PREFIX.length());
+    }
+
+    private static long blogId(String field) {
+        return parse(field, 0);
+    }
+
+    // 解析非负整数，格式不对或溢出时返回 -1
+    private static long parse(String s, int from) {
+        int length = s.length();
+        if (from >= length || length - from > 19) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value < 0) {
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    private final class Segment {
+
+        private final ByteBuffer buffer;
+
+        private final int mask;
+
+        private final int maxEntries;
+
+        private final StampedLock lock = new StampedLock();
+
+        private volatile int size;
+
+        Segment(int slots) {
+            this.buffer = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+            this.mask = slots - 1;
+            this.maxEntries = (int) (slots * LOAD_FACTOR);
+        }
+
+        Long get(long userId, long blogId, long hash, int now) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                int slot = find(userId, blogId, hash, now);
+                long value = slot < 0 ? 0 : buffer.getLong(slot * SLOT_BYTES + VALUE_OFFSET);
+                if (lock.validate(stamp)) {
+                    return slot < 0 ? null : value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                int slot = find(userId, blogId, hash, now);
+                return slot < 0 ? null : buffer.getLong(slot * SLOT_BYTES + VALUE_OFFSET);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int forEachKey(int limit, int now, Consumer<String> action) {
+            List<String> keys = new ArrayList<>();
+            long stamp = lock.readLock();
+            try {
+                for (int slot = 0; slot <= mask && keys.size() < limit; slot++) {
+                    int base = slot * SLOT_BYTES;
+                    int written = buffer.getInt(base + WRITTEN_OFFSET);
+                    if (written != 0 && now - written < expireAfterWriteSeconds) {
+                        keys.add(ThumbConstant.USER_THUMB_KEY_PREFIX + buffer.getLong(base + USER_OFFSET)
+                                + ":" + buffer.getLong(base + BLOG_OFFSET));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            keys.forEach(action);
+            return keys.size();
+        }
+
+        // 返回未过期条目的槽位，不存在时返回 -1；乐观读期间数据可能被修改，最多探测一圈
+        private int find(long userId, long blogId, long hash, int now) {
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int base = slot * SLOT_BYTES;
+                int written = buffer.getInt(base + WRITTEN_OFFSET);
+                if (written == 0) {
+                    return -1;
+                }
+                if (buffer.getLong(base + USER_OFFSET) == userId && buffer.getLong(base + BLOG_OFFSET) == blogId) {
+                    return now - written >= expireAfterWriteSeconds ? -1 : slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long userId, long blogId, long hash, long value, int now, boolean onlyIfPresent) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = (int) hash & mask;
+                while (true) {
+                    int base = slot * SLOT_BYTES;
+                    if (buffer.getInt(base + WRITTEN_OFFSET) == 0) {
+                        break;
+                    }
+                    if (buffer.getLong(base + USER_OFFSET) == userId && buffer.getLong(base + BLOG_OFFSET) == blogId) {
+                        buffer.putLong(base + VALUE_OFFSET, value);
+                        buffer.putInt(base + WRITTEN_OFFSET, now);
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (onlyIfPresent) {
+                    return;
+                }
+                if (size >= maxEntries) {
+                    evict(now);
+                    // 淘汰会移动条目，重新找空槽
+                    slot = (int) hash & mask;
+                    while (buffer.getInt(slot * SLOT_BYTES + WRITTEN_OFFSET) != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                }
+                int base = slot * SLOT_BYTES;
+                buffer.putLong(base + USER_OFFSET, userId);
+                buffer.putLong(base + BLOG_OFFSET, blogId);
+                buffer.putLong(base + VALUE_OFFSET, value);
+                buffer.putInt(base + WRITTEN_OFFSET, now);
+                size++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long userId, long blogId, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = (int) hash & mask;
+                while (true) {
+                    int base = slot * SLOT_BYTES;
+                    if (buffer.getInt(base + WRITTEN_OFFSET) == 0) {
+                        return;
+                    }
+                    if (buffer.getLong(base + USER_OFFSET) == userId && buffer.getLong(base + BLOG_OFFSET) == blogId) {
+                        removeAt(slot);
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // 需持有写锁：从随机位置开始抽样，淘汰写入最早（或已过期）的条目
+        private void evict(int now) {
+            int slot = ThreadLocalRandom.current().nextInt(mask + 1);
+            int victim = -1;
+            int oldest = Integer.MAX_VALUE;
+            for (int sampled = 0; sampled < EVICTION_SAMPLES; slot = (slot + 1) & mask) {
+                int written = buffer.getInt(slot * SLOT_BYTES + WRITTEN_OFFSET);
+                if (written == 0) {
+                    continue;
+                }
+                sampled++;
+                if (written < oldest) {
+                    oldest = written;
+                    victim = slot;
+                }
+                if (now - written >= expireAfterWriteSeconds) {
+                    break;
+                }
+            }
+            removeAt(victim);
+        }
+
+        // 需持有写锁：删除槽位，并把后面探测链上的条目前移填补空位
+        private void removeAt(int hole) {
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & mask;
+                int base = slot * SLOT_BYTES;
+                if (buffer.getInt(base + WRITTEN_OFFSET) == 0) {
+                    break;
+                }
+                int home = (int) hash(buffer.getLong(base + USER_OFFSET), buffer.getLong(base + BLOG_OFFSET)) & mask;
+                // home 不在 (hole, slot] 区间内时，条目可以移到 hole
+                boolean movable = hole <= slot
+                        ? home <= hole || home > slot
+                        : home <= hole && home > slot;
+                if (movable) {
+                    copySlot(slot, hole);
+                    hole = slot;
+                }
+            }
+            buffer.putInt(hole * SLOT_BYTES + WRITTEN_OFFSET, 0);
+            size--;
+        }
+
+        private void copySlot(int from, int to) {
+            int source = from * SLOT_BYTES;
+            int target = to * SLOT_BYTES;
+            for (int offset = 0; offset < SLOT_BYTES; offset += Long.BYTES) {
+                buffer.putLong(target + offset, buffer.getLong(source + offset));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.constant.CacheConstant;
+import com.allen.thumb.util.NodeUtil;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于 Redis pub/sub 的失效广播
+ * <p>
+ * 一批失效发送为一条消息：第一行是发送节点 ID，之后每行一个 key，收到自己发出的消息直接忽略。
+ * pub/sub 不保证送达，节点断线期间的失效会丢失，由本地缓存的过期时间兜底。
+ *
+ * @author KiveAllen
+ */
+public class RedisInvalidationBus extends BatchingInvalidationBus {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public RedisInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                Duration flushInterval, int maxBatchSize) {
+        super(flushInterval, maxBatchSize);
+        this.stringRedisTemplate = stringRedisTemplate;
+        listenerContainer.addMessageListener((message, pattern) -> onMessage(message),
+                new ChannelTopic(CacheConstant.INVALIDATION_CHANNEL));
+    }
+
+    @Override
+    protected void send(Set<String> keys) {
+        String message = NodeUtil.getNodeId() + "\n" + String.join("\n", keys);
+        stringRedisTemplate.convertAndSend(CacheConstant.INVALIDATION_CHANNEL, message);
+    }
+
+    private void onMessage(Message message) {
+        List<String> lines = new String(message.getBody(), StandardCharsets.UTF_8).lines().toList();
+        if (lines.size() < 2 || NodeUtil.getNodeId().equals(lines.getFirst())) {
+            return;
+        }
+        deliver(new HashSet<>(lines.subList(1, lines.size())));
+    }
+}
@@ -0,0 +1,289 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按线程分片的 HeavyKeeper
+ * <p>
+ * 内部持有多个相互独立的 HeavyKeeper，写入时按当前线程选择分片，
+ * 不同线程的写入不会争抢同一份桶表和堆的缓存行。
+ * 读取时（list / expelled）再把各分片的结果合并。
+ * <p>
+ * 每个分片只看到 1/N 的流量，因此分片内的最小计数阈值按分片数等比缩小；
+ * 合并后的计数是各分片计数之和，与单个 HeavyKeeper 的计数口径一致。
+ * {@link #add} 按合并口径判断热 Key：key 进入当前分片的 TopK 后，
+ * 还要各分片计数之和达到 minCount 和上次衰减时合并 TopK 的最小计数，
+ * 否则只按分片阈值判断会比单个 HeavyKeeper 宽松约 N 倍。
+ * Zipf 流量下的精度对比见 HeavyKeeperBenchmarkTests#shardedAccuracy。
+ * <p>
+ * 监听器看到的是合并后的成员变化：key 进入任一分片的 TopK 时通知进入，
+ * 退出最后一个包含它的分片时才通知退出，不会因为单个分片的进出而重复通知。
+ *
+ * @author KiveAllen
+ */
+public class ShardedHeavyKeeper implements TopK {
+    // 合并后的被驱逐队列容量
+    private static final int EXPELLED_QUEUE_CAPACITY = 1024;
+    // TopK的K值
+    private final int k;
+    // 最小计数阈值（合并口径）
+    private final int minCount;
+    // 合并口径的热 Key 阈值，每次衰减后按合并 TopK 的最小计数更新
+    private volatile int hotThreshold;
+    // 分片数组，长度为 2 的幂
+    private final HeavyKeeper[] shards;
+    // 分片下标掩码
+    private final int mask;
+    // 合并后的被驱逐元素队列
+    private final BlockingQueue<Item> expelledQueue;
+    // 合并后的被驱逐队列丢弃的元素数
+    private final LongAdder expelledDropped = new LongAdder();
+    // 至少在一个分片 TopK 中的 key，只在注册监听器后维护
+    private final Set<String> members = ConcurrentHashMap.newKeySet();
+    // 合并后的热 Key 事件分发器
+    private final HotKeyEventDispatcher dispatcher = new HotKeyEventDispatcher(HotKeyEventDispatcher.DEFAULT_CAPACITY);
+    // 是否已在各分片上注册成员变化的监听
+    private boolean tracking;
+
+    /**
+     * 构造函数
+     * @param shardCount 分片数，会向上取整为 2 的幂
+     * @param k TopK的K值
+     * @param width 每个分片的桶宽度
+     * @param depth 深度，即桶的层数
+     * @param decay 衰减因子
+     * @param minCount 最小计数阈值（合并口径）
+     */
+    public ShardedHeavyKeeper(int shardCount, int k, int width, int depth, double decay, int minCount) {
+        int size = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.k = k;
+        this.minCount = minCount;
+        this.hotThreshold = minCount;
+        this.mask = size - 1;
+        this.shards = new HeavyKeeper[size];
+        int shardMinCount = Math.max(1, minCount / size);
+        for (int i = 0; i < size; i++) {
+            shards[i] = new HeavyKeeper(k, width, depth, decay, shardMinCount);
+        }
+        this.expelledQueue = new LinkedBlockingQueue<>(EXPELLED_QUEUE_CAPACITY);
+    }
+
+    /**
+     * 写入当前线程所在的分片，按合并后的计数判断是否为热 Key
+     */
+    @Override
+    public AddResult add(String key, int increment) {
+        return confirmMerged(currentShard().add(key, increment));
+    }
+
+    @Override
+    public AddResult add(long key, int increment) {
+        return confirmMerged(currentShard().add(key, increment));
+    }
+
+    /**
+     * 批量写入当前线程所在的分片，只返回合并口径下的热 Key
+     */
+    @Override
+    public List<AddResult> addAll(Map<String, Integer> increments) {
+        List<AddResult> results = currentShard().addAll(increments);
+        results.removeIf(result -> !mergedHot(result.getCurrentKey()));
+        return results;
+    }
+
+    /**
+     * 合并各分片的 TopK，同一个 key 的计数相加
+     */
+    @Override
+    public List<Item> list() {
+        Map<String, Integer> merged = new HashMap<>();
+        for (HeavyKeeper shard : shards) {
+            for (Item item : shard.list()) {
+                merged.merge(item.key(), item.count(), Integer::sum);
+            }
+        }
+        List<Item> result = new ArrayList<>(merged.size());
+        merged.forEach((key, count) -> result.add(new Item(key, count)));
+        result.sort((a, b) -> Integer.compare(b.count(), a.count()));
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    /**
+     * 把各分片的被驱逐元素汇总到同一个队列
+     */
+    @Override
+    public BlockingQueue<Item> expelled() {
+        for (HeavyKeeper shard : shards) {
+            for (Item item = shard.expelled().poll(); item != null; item = shard.expelled().poll()) {
+                while (!expelledQueue.offer(item)) {
+                    if (expelledQueue.poll() != null) {
+                        expelledDropped.increment();
+                    }
+                }
+            }
+        }
+        return expelledQueue;
+    }
+
+    @Override
+    public void fading() {
+        for (HeavyKeeper shard : shards) {
+            shard.fading();
+        }
+        hotThreshold = Math.max(minCount, minHotCount());
+    }
+
+    @Override
+    public long total() {
+        long total = 0;
+        for (HeavyKeeper shard : shards) {
+            total += shard.total();
+        }
+        return total;
+    }
+
+    /**
+     * 监听合并后的成员变化，各分片的进出事件先在这里按所有分片的实际成员过滤
+     */
+    @Override
+    public synchronized void addListener(HotKeyListener listener) {
+        dispatcher.addListener(listener);
+        if (tracking) {
+            return;
+        }
+        tracking = true;
+        HotKeyListener shardListener = new HotKeyListener() {
+            @Override
+            public void onHot(Item item) {
+                if (members.add(item.key())) {
+                    dispatcher.hot(item);
+                }
+            }
+
+            @Override
+            public void onExpelled(Item item) {
+                // 各分片的事件由各自的线程分发，以分片的实际成员为准
+                if (!containedInAnyShard(item.key()) && members.remove(item.key())) {
+                    dispatcher.expelled(item);
+                }
+            }
+        };
+        for (HeavyKeeper shard : shards) {
+            shard.addListener(shardListener);
+        }
+    }
+
+    @Override
+    public long droppedEvents() {
+        long dropped = dispatcher.dropped() + expelledDropped.sum();
+        for (HeavyKeeper shard : shards) {
+            dropped += shard.droppedEvents();
+        }
+        return dropped;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (HeavyKeeper shard : shards) {
+            bytes += shard.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 各分片统计中的最大值，任一分片饱和都需要扩容
+     */
+    @Override
+    public SketchStats sketchStats() {
+        double occupancy = 0;
+        double collisionRate = 0;
+        for (HeavyKeeper shard : shards) {
+            SketchStats shardStats = shard.sketchStats();
+            occupancy = Math.max(occupancy, shardStats.occupancy());
+            collisionRate = Math.max(collisionRate, shardStats.collisionRate());
+        }
+        SketchStats first = shards[0].sketchStats();
+        return new SketchStats(first.width(), first.depth(), occupancy, collisionRate);
+    }
+
+    @Override
+    public void close() {
+        for (HeavyKeeper shard : shards) {
+            shard.close();
+        }
+        dispatcher.shutdown();
+    }
+
+    /**
+     * 合并后 TopK 中的最小计数
+     */
+    @Override
+    public int minHotCount() {
+        List<Item> items = list();
+        return items.size() < k ? 0 : items.getLast().count();
+    }
+
+    @Override
+    public long replacements() {
+        long replacements = 0;
+        for (HeavyKeeper shard : shards) {
+            replacements += shard.replacements();
+        }
+        return replacements;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // 分片内的热 Key 再按合并后的计数确认
+    private AddResult confirmMerged(AddResult result) {
+        if (!result.isHotKey() || mergedHot(result.getCurrentKey())) {
+            return result;
+        }
+        return new AddResult(result.getExpelledKey(), false, result.getCurrentKey());
+    }
+
+    // 单分片时分片阈值就是合并阈值；否则把各分片 TopK 中的计数相加，只读取成员计数，不加锁
+    private boolean mergedHot(String key) {
+        if (mask == 0) {
+            return true;
+        }
+        int threshold = hotThreshold;
+        long count = 0;
+        for (HeavyKeeper shard : shards) {
+            count += shard.count(key);
+            if (count >= threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containedInAnyShard(String key) {
+        for (HeavyKeeper shard : shards) {
+            if (shard.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 按线程 id 选择分片，同一线程始终写同一个分片
+    private HeavyKeeper currentShard() {
+        if (mask == 0) {
+            return shards[0];
+        }
+        long id = Thread.currentThread().threadId();
+        return shards[(int) BucketTable.mix64(id) & mask];
+    }
+}
@@ -0,0 +1,79 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 同一个 key 的并发加载合并为一次
+ * <p>
+ * 第一个到达的线程执行加载，加载期间到达的线程等待它的结果，加载完成后移除，之后的请求重新加载。
+ * 等待使用 {@link CompletableFuture#join()}，不持有 synchronized 锁，虚拟线程等待时不会固定载体线程。
+ *
+ * @author KiveAllen
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // 实际执行的加载次数
+    private final LongAdder loads = new LongAdder();
+
+    // 复用其他线程加载结果的次数
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 执行加载，已有同 key 的加载在进行时等待其结果
+     *
+     * @param loader 加载逻辑，抛出的异常会传给所有等待的线程
+     */
+    public Result<V> execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return new Result<>(existing.join(), true);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * key 已修改：正在进行的加载可能读到旧值，之后到达的请求不再等待它，重新加载
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public long loads() {
+        return loads.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @param value  加载结果
+     * @param shared 是否复用了其他线程的加载结果
+     */
+    public record Result<V>(V value, boolean shared) {
+    }
+}
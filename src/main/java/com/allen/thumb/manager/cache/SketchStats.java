@@ -0,0 +1,32 @@
+package com.allen.thumb.manager.cache;
+
+/**
+ * 桶表在上一个衰减周期的统计，用于判断是否需要扩容
+ *
+ * @param width         每行桶数
+ * @param depth         行数
+ * @param occupancy     衰减前计数不为 0 的槽位占比
+ * @param collisionRate 写入时遇到其他指纹的比例（按单位增量、每行计一次）
+ * @author KiveAllen
+ */
+public record SketchStats(int width, int depth, double occupancy, double collisionRate) {
+
+    /**
+     * 不提供桶表统计的算法
+     */
+    public static final SketchStats NONE = new SketchStats(0, 0, 0, 0);
+
+    /**
+     * 按一个周期的原始计数计算统计
+     *
+     * @param occupied   计数不为 0 的槽位数
+     * @param collisions 遇到指纹冲突的增量单位数
+     * @param increments 周期内写入的总增量
+     */
+    static SketchStats of(BucketTable buckets, int occupied, long collisions, long increments) {
+        long updates = increments * buckets.depth();
+        return new SketchStats(buckets.width(), buckets.depth(),
+                (double) occupied / buckets.slots(),
+                updates > 0 ? Math.min(1.0, (double) collisions / updates) : 0);
+    }
+}
@@ -0,0 +1,138 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SpaceSaving（Stream-Summary）TopK
+ * <p>
+ * 固定维护 capacity 个计数器：已有计数器的 key 直接累加；计数器已满时，
+ * 新 key 接管计数最小的计数器，计数为原最小值加增量。
+ * 估算值只会偏大，偏差不超过被接管时的最小值，出现频率超过 total / capacity 的 key 一定在计数器中。
+ * 计数器中计数最高的 k 个交给 {@link TopKHeap} 维护，capacity 通常取 k 的数倍以提高精度。
+ * <p>
+ * 计数器的更新需要加锁，写入吞吐低于 HeavyKeeper，换来的是不依赖哈希表宽度的精度。
+ *
+ * @author KiveAllen
+ */
+public class SpaceSaving implements TopK {
+    // 计数器，按计数组织成最小堆，满时替换计数最小的
+    private final IndexedMinHeap counters;
+    // 计数器数量
+    private final int capacity;
+    // TopK 成员，包括最小堆、被驱逐队列和事件分发
+    private final TopKHeap topK;
+    // 总计数
+    private final LongAdder total;
+    // 最小计数阈值
+    private final int minCount;
+
+    /**
+     * 构造函数
+     * @param k TopK的K值
+     * @param capacity 计数器数量，不小于 k
+     * @param minCount 最小计数阈值
+     */
+    public SpaceSaving(int k, int capacity, int minCount) {
+        if (capacity < k) {
+            throw new IllegalArgumentException("capacity 不能小于 k");
+        }
+        this.capacity = capacity;
+        this.minCount = minCount;
+        this.counters = new IndexedMinHeap(capacity);
+        this.topK = new TopKHeap(k, TopKHeap.EXPELLED_QUEUE_CAPACITY);
+        this.total = new LongAdder();
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        int count;
+        synchronized (counters) {
+            count = increment(key, increment);
+        }
+        total.add(increment);
+
+        if (count < minCount) {
+            return TopKHeap.NOT_HOT;
+        }
+        return topK.offer(key, count);
+    }
+
+    @Override
+    public List<Item> list() {
+        return topK.list();
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return topK.expelled();
+    }
+
+    /**
+     * 所有计数器和 TopK 成员的计数减半
+     */
+    @Override
+    public void fading() {
+        synchronized (counters) {
+            counters.halve();
+        }
+        topK.halve();
+
+        long current = total.sumThenReset();
+        total.add(current >> 1);
+    }
+
+    @Override
+    public long total() {
+        return total.sum();
+    }
+
+    @Override
+    public void addListener(HotKeyListener listener) {
+        topK.addListener(listener);
+    }
+
+    @Override
+    public long droppedEvents() {
+        return topK.droppedEvents();
+    }
+
+    @Override
+    public void close() {
+        topK.close();
+    }
+
+    @Override
+    public int minHotCount() {
+        return topK.minCount();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return (long) capacity * TopKHeap.NODE_BYTES + topK.estimatedBytes();
+    }
+
+    // 需持有 counters 锁
+    private int increment(String key, int increment) {
+        IndexedMinHeap.Node node = counters.get(key);
+        if (node != null) {
+            int count = saturatedAdd(node.count, increment);
+            counters.increaseKey(node, count);
+            return count;
+        }
+        int count = increment;
+        if (counters.size() >= capacity) {
+            // 接管计数最小的计数器
+            IndexedMinHeap.Node min = counters.poll();
+            count = saturatedAdd(min.count, increment);
+        }
+        counters.offer(key, count);
+        return count;
+    }
+
+    private static int saturatedAdd(int count, int increment) {
+        long sum = (long) count + increment;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+}
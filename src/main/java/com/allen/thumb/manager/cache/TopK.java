@@ -1,12 +1,39 @@
 package com.allen.thumb.manager.cache;// TopK.java
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 public interface TopK {
 
     AddResult add(String key, int increment);
 
+    /**
+     * 添加博客 ID 等数字 key，与 add(Long.toString(key), increment) 计入同一个 key；
+     * 未进入 TopK 时不创建 key 字符串
+     */
+    default AddResult add(long key, int increment) {
+        return add(Long.toString(key), increment);
+    }
+
+    /**
+     * 批量添加预先聚合好的计数，适合消费批次、其他节点的热 Key 等场景
+     *
+     * @param increments key -> 计数增量
+     * @return 进入或已在 TopK 中的 key 的结果
+     */
+    default List<AddResult> addAll(Map<String, Integer> increments) {
+        List<AddResult> results = new ArrayList<>();
+        increments.forEach((key, increment) -> {
+            AddResult result = add(key, increment);
+            if (result.isHotKey()) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
     List<Item> list();
 
     BlockingQueue<Item> expelled();
@@ -14,4 +41,45 @@ public interface TopK {
     void fading();
 
     long total();
-}
\ No newline at end of file
+
+    /**
+     * 注册热 Key 进入 / 退出 TopK 的监听器
+     */
+    void addListener(HotKeyListener listener);
+
+    /**
+     * 因缓冲区已满而丢弃的事件数（含被驱逐队列丢弃的元素）
+     */
+    long droppedEvents();
+
+    /**
+     * 估算占用的内存字节数，不含 key 字符串本身
+     */
+    long estimatedBytes();
+
+    /**
+     * 上一个衰减周期的桶表统计，不使用桶表的算法返回 {@link SketchStats#NONE}
+     */
+    default SketchStats sketchStats() {
+        return SketchStats.NONE;
+    }
+
+    /**
+     * TopK 中的最小计数，新 key 需要达到该计数才能进入；TopK 未满时为 0
+     */
+    default int minHotCount() {
+        return 0;
+    }
+
+    /**
+     * 桶被其他 key 接管的累计次数，不使用桶表的算法返回 0
+     */
+    default long replacements() {
+        return 0;
+    }
+
+    /**
+     * 停止事件分发，检测器被替换后调用
+     */
+    void close();
+}
@@ -0,0 +1,85 @@
+package com.allen.thumb.manager.cache;
+
+/**
+ * 热 Key 检测算法，通过配置 hotkey.algorithm 选择
+ * <p>
+ * 各算法在 Zipf / 突发流量下的精度和内存对比见 TopKComparison，吞吐见 HeavyKeeperBenchmark。
+ *
+ * @author KiveAllen
+ */
+public enum TopKAlgorithm {
+
+    /**
+     * HeavyKeeper，默认算法
+     */
+    HEAVY_KEEPER {
+        @Override
+        public TopK create(int k, int width, int depth, double decay, int minCount, int windowCount) {
+            return new HeavyKeeper(k, width, depth, decay, minCount);
+        }
+    },
+
+    /**
+     * 按线程分片的 HeavyKeeper，分片数取 CPU 核数
+     */
+    SHARDED_HEAVY_KEEPER {
+        @Override
+        public TopK create(int k, int width, int depth, double decay, int minCount, int windowCount) {
+            return new ShardedHeavyKeeper(Runtime.getRuntime().availableProcessors(), k, width, depth, decay, minCount);
+        }
+    },
+
+    /**
+     * 滑动窗口 HeavyKeeper，统计最近 windowCount 个衰减周期
+     */
+    WINDOWED_HEAVY_KEEPER {
+        @Override
+        public TopK create(int k, int width, int depth, double decay, int minCount, int windowCount) {
+            return new WindowedHeavyKeeper(k, width, depth, decay, minCount, windowCount);
+        }
+    },
+
+    /**
+     * SpaceSaving，计数器数量取 k 的 10 倍，不使用 width / depth / decay
+     */
+    SPACE_SAVING {
+        @Override
+        public TopK create(int k, int width, int depth, double decay, int minCount, int windowCount) {
+            return new SpaceSaving(k, k * 10, minCount);
+        }
+    },
+
+    /**
+     * Count-Min Sketch + 最小堆，不使用 decay
+     */
+    COUNT_MIN {
+        @Override
+        public TopK create(int k, int width, int depth, double decay, int minCount, int windowCount) {
+            return new CountMinTopK(k, width, depth, minCount);
+        }
+    };
+
+    /**
+     * 默认的子窗口数量
+     */
+    public static final int DEFAULT_WINDOW_COUNT = 3;
+
+    /**
+     * 按统一的参数创建检测器，子窗口数量取 {@link #DEFAULT_WINDOW_COUNT}
+     */
+    public TopK create(int k, int width, int depth, double decay, int minCount) {
+        return create(k, width, depth, decay, minCount, DEFAULT_WINDOW_COUNT);
+    }
+
+    /**
+     * 按统一的参数创建检测器，算法用不到的参数忽略
+     *
+     * @param k           TopK的K值
+     * @param width       哈希表宽度
+     * @param depth       哈希表深度
+     * @param decay       衰减系数
+     * @param minCount    最小计数阈值
+     * @param windowCount 子窗口数量，只有 WINDOWED_HEAVY_KEEPER 使用
+     */
+    public abstract TopK create(int k, int width, int depth, double decay, int minCount, int windowCount);
+}
@@ -0,0 +1,238 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TopK 成员维护
+ * <p>
+ * 封装带索引的最小堆、有界的被驱逐队列和热 Key 事件分发，
+ * 各 TopK 实现只负责估算计数，再交给这里决定是否进入 TopK。
+ *
+ * @author KiveAllen
+ */
+final class TopKHeap {
+
+    // 未进入 TopK 时的共享结果，避免重复创建
+    static final AddResult NOT_HOT = new AddResult(null, false, null);
+
+    // 被驱逐队列默认容量
+    static final int EXPELLED_QUEUE_CAPACITY = 1024;
+
+    // 每个成员的估算字节数：堆节点、ConcurrentHashMap 节点和堆数组槽位，不含 key 字符串
+    static final int NODE_BYTES = 80;
+
+    // TopK的K值
+    private final int k;
+    // 带索引的最小堆，用于维护TopK元素
+    private final IndexedMinHeap minHeap;
+    // 被驱逐元素队列，有界，满时丢弃最旧的元素
+    private final BlockingQueue<Item> expelledQueue;
+    // 被驱逐队列丢弃的元素数
+    private final LongAdder expelledDropped;
+    // 热 Key 事件分发器
+    private final HotKeyEventDispatcher dispatcher;
+
+    TopKHeap(int k, int expelledCapacity) {
+        this.k = k;
+        this.minHeap = new IndexedMinHeap(k);
+        this.expelledQueue = new LinkedBlockingQueue<>(expelledCapacity);
+        this.expelledDropped = new LongAdder();
+        this.dispatcher = new HotKeyEventDispatcher(HotKeyEventDispatcher.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 用估算计数尝试让 key 进入 TopK
+     */
+    AddResult offer(String key, int count) {
+        // 快路径：已在 TopK 中的 key 无锁抬高计数
+        IndexedMinHeap.Node node = minHeap.get(key);
+        if (node != null) {
+            node.raise(count);
+            return new AddResult(null, true, key);
+        }
+
+        synchronized (minHeap) {
+            node = minHeap.get(key);
+            if (node != null) {
+                minHeap.increaseKey(node, count);
+                return new AddResult(null, true, key);
+            }
+
+            String expelled = null;
+            if (minHeap.size() >= k) {
+                IndexedMinHeap.Node min = minHeap.peek();
+                if (count < min.count) {
+                    return NOT_HOT;
+                }
+                minHeap.poll();
+                expelled = min.key;
+                offerExpelled(new Item(min.key, min.count));
+            }
+            minHeap.offer(key, count);
+            dispatcher.hot(new Item(key, count));
+            return new AddResult(expelled, true, key);
+        }
+    }
+
+    /**
+     * 批量尝试进入 TopK，已是成员的 key 无锁抬高计数，其余 key 按计数从高到低在同一次加锁内处理
+     *
+     * @param counts key -> 估算计数
+     * @return 进入或已在 TopK 中的 key 的结果
+     */
+    List<AddResult> offerAll(Map<String, Integer> counts) {
+        List<AddResult> results = new ArrayList<>();
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            IndexedMinHeap.Node node = minHeap.get(entry.getKey());
+            if (node != null) {
+                node.raise(entry.getValue());
+                results.add(new AddResult(null, true, entry.getKey()));
+            } else {
+                candidates.add(entry);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return results;
+        }
+        // 先处理计数高的 key，避免同一批次内先进入又被挤出
+        candidates.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+        synchronized (minHeap) {
+            for (Map.Entry<String, Integer> entry : candidates) {
+                String key = entry.getKey();
+                int count = entry.getValue();
+                IndexedMinHeap.Node node = minHeap.get(key);
+                if (node != null) {
+                    minHeap.increaseKey(node, count);
+                    results.add(new AddResult(null, true, key));
+                    continue;
+                }
+
+                String expelled = null;
+                if (minHeap.size() >= k) {
+                    IndexedMinHeap.Node min = minHeap.peek();
+                    if (count < min.count) {
+                        // 候选按计数降序，后面的 key 也进不了 TopK
+                        break;
+                    }
+                    minHeap.poll();
+                    expelled = min.key;
+                    offerExpelled(new Item(min.key, min.count));
+                }
+                minHeap.offer(key, count);
+                dispatcher.hot(new Item(key, count));
+                results.add(new AddResult(expelled, true, key));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 当前 TopK 成员，按计数降序
+     */
+    List<Item> list() {
+        List<Item> result;
+        synchronized (minHeap) {
+            result = minHeap.items();
+        }
+        result.sort((a, b) -> Integer.compare(b.count(), a.count()));
+        return result;
+    }
+
+    /**
+     * 当前 TopK 成员的 key
+     */
+    List<String> keys() {
+        List<Item> items;
+        synchronized (minHeap) {
+            items = minHeap.items();
+        }
+        List<String> keys = new ArrayList<>(items.size());
+        for (Item item : items) {
+            keys.add(item.key());
+        }
+        return keys;
+    }
+
+    /**
+     * 所有成员计数减半
+     */
+    void halve() {
+        synchronized (minHeap) {
+            minHeap.halve();
+        }
+    }
+
+    /**
+     * 按新计数重新打分，计数归零的成员视为被驱逐
+     */
+    void rescore(Map<String, Integer> counts) {
+        List<IndexedMinHeap.Node> removed;
+        synchronized (minHeap) {
+            removed = minHeap.rescore(counts);
+        }
+        for (IndexedMinHeap.Node node : removed) {
+            offerExpelled(new Item(node.key, 0));
+        }
+    }
+
+    boolean contains(String key) {
+        return minHeap.get(key) != null;
+    }
+
+    /**
+     * 无锁读取成员的实时计数，不是成员时返回 0
+     */
+    int count(String key) {
+        IndexedMinHeap.Node node = minHeap.get(key);
+        return node == null ? 0 : node.count;
+    }
+
+    int size() {
+        synchronized (minHeap) {
+            return minHeap.size();
+        }
+    }
+
+    int minCount() {
+        synchronized (minHeap) {
+            return minHeap.size() < k ? 0 : minHeap.peek().count;
+        }
+    }
+
+    long estimatedBytes() {
+        return (long) k * NODE_BYTES;
+    }
+
+    void close() {
+        dispatcher.shutdown();
+    }
+
+    BlockingQueue<Item> expelled() {
+        return expelledQueue;
+    }
+
+    void addListener(HotKeyListener listener) {
+        dispatcher.addListener(listener);
+    }
+
+    long droppedEvents() {
+        return dispatcher.dropped() + expelledDropped.sum();
+    }
+
+    // 放入被驱逐队列并通知监听器，队列满时丢弃最旧的元素
+    private void offerExpelled(Item item) {
+        while (!expelledQueue.offer(item)) {
+            if (expelledQueue.poll() != null) {
+                expelledDropped.increment();
+            }
+        }
+        dispatcher.expelled(item);
+    }
+}
@@ -0,0 +1,129 @@
+package com.allen.thumb.manager.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.csc.CacheStats;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Redis 客户端缓存（client tracking）的读取
+ * <p>
+ * 连接使用 RESP3 并开启 CLIENT TRACKING，读过的 key 被修改时 Redis 主动推送失效，
+ * Jedis 收到后清理客户端缓存，不依赖过期时间，也不需要 key 先成为热 Key。
+ * <p>
+ * Redis 低于 6.0 或连接失败时不可用，调用方回退到热 Key + 本地缓存；
+ * 运行中出错会暂停使用 retryInterval 后再尝试，期间的读取同样回退。
+ *
+ * @author KiveAllen
+ */
+@Slf4j
+public class TrackingRedisClient implements AutoCloseable {
+
+    private static final TrackingRedisClient DISABLED = new TrackingRedisClient(null, null, Duration.ZERO);
+
+    // 开启了客户端缓存的连接池，为 null 表示未启用
+    private final UnifiedJedis jedis;
+
+    private final RedisSerializer<?> valueSerializer;
+
+    private final long retryIntervalNanos;
+
+    // 出错后在该时间之前不使用客户端缓存
+    private volatile long suspendedUntil;
+
+    // 回退到本地缓存的读取次数
+    private final LongAdder fallbacks = new LongAdder();
+
+    public TrackingRedisClient(UnifiedJedis jedis, RedisSerializer<?> valueSerializer, Duration retryInterval) {
+        this.jedis = jedis;
+        this.valueSerializer = valueSerializer;
+        this.retryIntervalNanos = retryInterval.toNanos();
+    }
+
+    /**
+     * 未启用客户端缓存
+     */
+    public static TrackingRedisClient disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return jedis != null;
+    }
+
+    /**
+     * 当前是否可以走客户端缓存
+     */
+    public boolean isAvailable() {
+        if (jedis == null) {
+            return false;
+        }
+        if (suspendedUntil != 0 && System.nanoTime() - suspendedUntil < 0) {
+            fallbacks.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 读取 hash 字段，命中客户端缓存时不访问 Redis
+     *
+     * @return 反序列化后的值，不存在时为 null
+     * @throws RuntimeException 连接或命令出错，调用方应调用 {@link #suspend(Exception)} 后回退
+     */
+    public Object hget(String hashKey, String field) {
+        byte[] value = jedis.hget(hashKey.getBytes(StandardCharsets.UTF_8), field.getBytes(StandardCharsets.UTF_8));
+        // 只在恢复后写一次，正常读取不写共享变量
+        if (suspendedUntil != 0) {
+            suspendedUntil = 0;
+        }
+        return value == null ? null : valueSerializer.deserialize(value);
+    }
+
+    /**
+     * 出错后暂停使用；断线期间的失效已经丢失，Jedis 重连时会清空客户端缓存
+     */
+    public void suspend(Exception e) {
+        fallbacks.increment();
+        suspendedUntil = System.nanoTime() + retryIntervalNanos;
+        log.warn("Redis 客户端缓存不可用，{} 秒内回退到本地缓存", retryIntervalNanos / 1_000_000_000L, e);
+    }
+
+    /**
+     * 客户端缓存统计，未启用时为 null
+     */
+    public CacheStats stats() {
+        return jedis == null ? null : jedis.getCache().getStats();
+    }
+
+    /**
+     * 启动以来的命中率
+     */
+    public double hitRatio() {
+        CacheStats stats = stats();
+        if (stats == null) {
+            return 0;
+        }
+        long requests = stats.getHitCount() + stats.getMissCount();
+        return requests == 0 ? 0 : (double) stats.getHitCount() / requests;
+    }
+
+    public long size() {
+        return jedis == null ? 0 : jedis.getCache().getSize();
+    }
+
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public void close() {
+        if (jedis != null) {
+            jedis.close();
+        }
+    }
+}
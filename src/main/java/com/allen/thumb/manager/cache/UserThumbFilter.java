@@ -0,0 +1,195 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.constant.ThumbConstant;
+import com.allen.thumb.manager.thumb.UserThumbStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户已点赞博客的布隆过滤器
+ * <p>
+ * 每个用户一个过滤器，首次查询时从 Redis 中该用户的点赞记录构建，之后随点赞同步写入；
+ * 过滤器判定未点赞的博客一定没有点赞，不必再查本地缓存和 Redis。
+ * 过滤器放在按字节数限制容量的 Caffeine 中，不活跃的用户会被淘汰。
+ * <p>
+ * 布隆过滤器不支持删除，取消点赞只计数，取消过多或写入超过预期元素数时丢弃过滤器，下次查询重建。
+ * 其他节点的点赞通过失效广播得知；广播可能丢失，丢失后过滤器会把已点赞判成未点赞，直到按 expireAfterWrite 过期重建，
+ * 因此默认关闭，只在单节点部署（invalidation.mode=LOCAL）时判定未点赞才是准确的。
+ *
+ * @author KiveAllen
+ */
+@Component
+@Slf4j
+public class UserThumbFilter {
+
+    @Resource
+    private UserThumbStore userThumbStore;
+
+    @Resource
+    private HotKeyProperties hotKeyProperties;
+
+    @Resource
+    private InvalidationBus invalidationBus;
+
+    private Cache<Long, UserFilter> filters;
+
+    // 过滤器判定未点赞、直接返回的次数
+    private final LongAdder negatives = new LongAdder();
+
+    // 过滤器判定可能点赞的次数
+    private final LongAdder positives = new LongAdder();
+
+    // 判定可能点赞、实际未点赞的次数
+    private final LongAdder falsePositives = new LongAdder();
+
+    // 过滤器构建次数
+    private final LongAdder builds = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        HotKeyProperties.ThumbFilter config = hotKeyProperties.getThumbFilter();
+        filters = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumSize().toBytes())
+                .weigher((Long userId, UserFilter filter) -> (int) Math.min(Integer.MAX_VALUE, filter.bloom.bytes()))
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .build();
+        invalidationBus.subscribe(this::onRemoteChange);
+        if (config.isEnabled() && hotKeyProperties.getInvalidation().getMode() != HotKeyProperties.Invalidation.Mode.LOCAL) {
+            log.warn("多节点部署开启了点赞布隆过滤器，失效广播丢失时最长 {} 内会把其他节点的点赞判成未点赞",
+                    config.getExpireAfterWrite());
+        }
+    }
+
+    public boolean isEnabled() {
+        return hotKeyProperties.getThumbFilter().isEnabled();
+    }
+
+    /**
+     * 去掉一定没有点赞的博客
+     *
+     * @return 可能已点赞的博客
+     */
+    public List<Long> mightContain(Long userId, Collection<Long> blogIds) {
+        if (!isEnabled()) {
+            return new ArrayList<>(blogIds);
+        }
+        UserFilter filter = filters.get(userId, this::build);
+        List<Long> candidates = new ArrayList<>(blogIds.size());
+        for (Long blogId : blogIds) {
+            if (filter.bloom.mightContain(blogId)) {
+                candidates.add(blogId);
+            }
+        }
+        positives.add(candidates.size());
+        negatives.add(blogIds.size() - candidates.size());
+        return candidates;
+    }
+
+    /**
+     * 记录可能点赞的博客中实际未点赞的数量
+     */
+    public void recordFalsePositives(int count) {
+        if (count > 0 && isEnabled()) {
+            falsePositives.add(count);
+        }
+    }
+
+    /**
+     * 点赞成功后调用，须在写入 Redis 之后
+     */
+    public void add(Long userId, Long blogId) {
+        // 正在构建的过滤器会在构建完成后再执行，不会漏掉构建期间的点赞
+        filters.asMap().computeIfPresent(userId, (id, filter) -> {
+            filter.bloom.add(blogId);
+            return filter.inserted.incrementAndGet() > filter.bloom.capacity() ? null : filter;
+        });
+    }
+
+    /**
+     * 取消点赞后调用
+     */
+    public void remove(Long userId, Long blogId) {
+        filters.asMap().computeIfPresent(userId, (id, filter) -> {
+            int removed = filter.removed.incrementAndGet();
+            // 已删除的元素仍占着位，超过一半时重建
+            return removed * 2 > filter.inserted.get() ? null : filter;
+        });
+    }
+
+    public long negatives() {
+        return negatives.sum();
+    }
+
+    public long positives() {
+        return positives.sum();
+    }
+
+    public long falsePositives() {
+        return falsePositives.sum();
+    }
+
+    public long builds() {
+        return builds.sum();
+    }
+
+    public long estimatedBytes() {
+        return filters.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    private UserFilter build(Long userId) {
+        HotKeyProperties.ThumbFilter config = hotKeyProperties.getThumbFilter();
+        Set<Long> blogIds = userThumbStore.blogIds(userId);
+        // 预留一倍空间给之后的点赞
+        BloomFilter bloom = new BloomFilter(Math.max(config.getMinCapacity(), blogIds.size() * 2), config.getFpp());
+        for (Long blogId : blogIds) {
+            bloom.add(blogId);
+        }
+        builds.increment();
+        return new UserFilter(bloom, blogIds.size());
+    }
+
+    // 其他节点修改了 thumb:{userId}:{blogId}，不区分点赞还是取消，都按点赞处理
+    private void onRemoteChange(Set<String> compositeKeys) {
+        for (String compositeKey : compositeKeys) {
+            if (!compositeKey.startsWith(ThumbConstant.USER_THUMB_KEY_PREFIX)) {
+                continue;
+            }
+            String[] parts = compositeKey.substring(ThumbConstant.USER_THUMB_KEY_PREFIX.length()).split(":");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                add(Long.valueOf(parts[0]), Long.valueOf(parts[1]));
+            } catch (NumberFormatException e) {
+                log.debug("忽略无法解析的失效 key {}", compositeKey);
+            }
+        }
+    }
+
+    private static final class UserFilter {
+        private final BloomFilter bloom;
+        // 构建后写入的元素数，包括构建时的元素
+        private final AtomicInteger inserted;
+        // 构建后取消点赞的次数
+        private final AtomicInteger removed = new AtomicInteger();
+
+        private UserFilter(BloomFilter bloom, int inserted) {
+            this.bloom = bloom;
+            this.inserted = new AtomicInteger(inserted);
+        }
+    }
+}
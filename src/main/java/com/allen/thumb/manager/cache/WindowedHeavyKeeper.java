@@ -0,0 +1,203 @@
+package com.allen.thumb.manager.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 滑动窗口 HeavyKeeper
+ * <p>
+ * 用 N 个子窗口桶表组成环，写入只落在当前子窗口，key 的计数为所有子窗口计数之和，
+ * 即最近 N 个子窗口内的访问量。{@link #fading()} 只做一次轮转：清空最旧的子窗口并把它设为当前窗口，
+ * 不再对整张表减半，热度随真实流量平滑变化，不会出现每次减半的锯齿。
+ * <p>
+ * 例如轮转周期 20 秒、3 个子窗口，统计的就是最近 60 秒的访问量。
+ *
+ * @author KiveAllen
+ */
+public class WindowedHeavyKeeper implements TopK {
+    // 子窗口桶表
+    private final BucketTable[] windows;
+    // 每个子窗口的计数
+    private final LongAdder[] totals;
+    // 当前子窗口下标
+    private volatile int current;
+    // TopK 成员，包括最小堆、被驱逐队列和事件分发
+    private final TopKHeap topK;
+    // 最小计数阈值（整个窗口口径）
+    private final int minCount;
+    // 上一个子窗口的桶表统计
+    private volatile SketchStats stats;
+
+    /**
+     * 构造函数
+     * @param k TopK的K值
+     * @param width 每个子窗口的桶宽度
+     * @param depth 深度，即桶的层数
+     * @param decay 衰减因子
+     * @param minCount 最小计数阈值
+     * @param windowCount 子窗口数量
+     */
+    public WindowedHeavyKeeper(int k, int width, int depth, double decay, int minCount, int windowCount) {
+        if (windowCount <= 0) {
+            throw new IllegalArgumentException("windowCount 必须大于 0");
+        }
+        this.minCount = minCount;
+        this.windows = new BucketTable[windowCount];
+        this.totals = new LongAdder[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            windows[i] = new BucketTable(width, depth, decay);
+            totals[i] = new LongAdder();
+        }
+        this.topK = new TopKHeap(k, TopKHeap.EXPELLED_QUEUE_CAPACITY);
+        this.stats = new SketchStats(width, depth, 0, 0);
+    }
+
+    @Override
+    public AddResult add(String key, int increment) {
+        long hash = HeavyKeeper.hash(key);
+        int index = current;
+        windows[index].add(hash, increment);
+        totals[index].add(increment);
+
+        int count = estimate(hash);
+        if (count < minCount) {
+            return TopKHeap.NOT_HOT;
+        }
+        return topK.offer(key, count);
+    }
+
+    @Override
+    public AddResult add(long key, int increment) {
+        long hash = HeavyKeeper.hash(key);
+        int index = current;
+        windows[index].add(hash, increment);
+        totals[index].add(increment);
+
+        int count = estimate(hash);
+        if (count < minCount) {
+            return TopKHeap.NOT_HOT;
+        }
+        return topK.offer(Long.toString(key), count);
+    }
+
+    @Override
+    public List<AddResult> addAll(Map<String, Integer> increments) {
+        int index = current;
+        Map<String, Integer> candidates = new HashMap<>();
+        long sum = 0;
+        for (Map.Entry<String, Integer> entry : increments.entrySet()) {
+            int increment = entry.getValue();
+            if (increment <= 0) {
+                continue;
+            }
+            long hash = HeavyKeeper.hash(entry.getKey());
+            windows[index].add(hash, increment);
+            sum += increment;
+            int count = estimate(hash);
+            if (count >= minCount) {
+                candidates.put(entry.getKey(), count);
+            }
+        }
+        totals[index].add(sum);
+        return topK.offerAll(candidates);
+    }
+
+    @Override
+    public List<Item> list() {
+        return topK.list();
+    }
+
+    @Override
+    public BlockingQueue<Item> expelled() {
+        return topK.expelled();
+    }
+
+    /**
+     * 轮转到下一个子窗口，并按新窗口重新估算 TopK 成员的计数
+     */
+    @Override
+    public void fading() {
+        // 轮转前统计刚结束的子窗口
+        BucketTable finished = windows[current];
+        long collisions = 0;
+        for (BucketTable window : windows) {
+            collisions += window.drainCollisions();
+        }
+        stats = SketchStats.of(finished, finished.occupied(), collisions, totals[current].sum());
+
+        int next = (current + 1) % windows.length;
+        windows[next].clear();
+        totals[next].reset();
+        current = next;
+
+        // 估算在锁外完成，持锁时只做 O(k) 的重新建堆
+        Map<String, Integer> counts = new HashMap<>();
+        for (String key : topK.keys()) {
+            counts.put(key, estimate(HeavyKeeper.hash(key)));
+        }
+        topK.rescore(counts);
+    }
+
+    @Override
+    public long total() {
+        long total = 0;
+        for (LongAdder adder : totals) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public void addListener(HotKeyListener listener) {
+        topK.addListener(listener);
+    }
+
+    @Override
+    public long droppedEvents() {
+        return topK.droppedEvents();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = topK.estimatedBytes();
+        for (BucketTable window : windows) {
+            bytes += window.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public SketchStats sketchStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        topK.close();
+    }
+
+    @Override
+    public int minHotCount() {
+        return topK.minCount();
+    }
+
+    @Override
+    public long replacements() {
+        long replacements = 0;
+        for (BucketTable window : windows) {
+            replacements += window.replacements();
+        }
+        return replacements;
+    }
+
+    private int estimate(long hash) {
+        long count = 0;
+        for (BucketTable window : windows) {
+            count += window.query(hash);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+}
@@ -0,0 +1,73 @@
+package com.allen.thumb.manager.thumb;
+
+import com.allen.thumb.config.ThumbStorageProperties;
+import com.allen.thumb.service.ThumbService;
+import com.allen.thumb.service.impl.ThumbServiceMQImpl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时检查点赞存储配置与当前的点赞实现、Redis 是否匹配
+ * <p>
+ * 只有 MQ 实现（thumbService）经过 {@link UserThumbStore}：其他实现的 Lua 脚本不认识冷数据标记，
+ * 数据过期后的用户会被当作没有点赞过，重复点赞写入数据库；也不能读取 set 结构。
+ * 开启空闲过期或 SET 结构而当前实现不是 MQ 实现时启动失败。
+ * <p>
+ * SET 结构只有元素数不超过 set-max-intset-entries 时才是 intset 编码，Redis 默认 512，
+ * 点赞数超过的用户每个点赞占 40 字节以上，低于 minIntsetEntries 时告警。
+ *
+ * @author KiveAllen
+ */
+@Component
+@Slf4j
+public class ThumbStorageChecker implements ApplicationRunner {
+
+    @Resource
+    private UserThumbStore userThumbStore;
+
+    @Resource
+    private ThumbStorageProperties thumbStorageProperties;
+
+    // 与 ThumbController 注入的是同一个实现
+    @Resource
+    private ThumbService thumbService;
+
+    @PostConstruct
+    public void validate() {
+        if (!userThumbStore.isSetLayout() && !userThumbStore.isTiered()) {
+            return;
+        }
+        if (!ThumbServiceMQImpl.class.isAssignableFrom(AopUtils.getTargetClass(thumbService))) {
+            throw new IllegalStateException("thumb.storage.layout=SET 和 thumb.storage.idle-ttl 只支持 MQ 点赞实现，当前为 "
+                    + AopUtils.getTargetClass(thumbService).getSimpleName());
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (userThumbStore.isSetLayout()) {
+            checkIntsetEntries();
+        }
+    }
+
+    private void checkIntsetEntries() {
+        long entries;
+        try {
+            entries = userThumbStore.intsetEntries();
+        } catch (Exception e) {
+            // 托管 Redis 可能禁用 CONFIG 命令
+            log.warn("无法读取 Redis 的 set-max-intset-entries，请确认不低于 {}",
+                    thumbStorageProperties.getMinIntsetEntries(), e);
+            return;
+        }
+        if (entries >= 0 && entries < thumbStorageProperties.getMinIntsetEntries()) {
+            log.warn("Redis 的 set-max-intset-entries 为 {}，低于 {}，点赞数超过 {} 的用户不再是 intset 编码，每个点赞占 40 字节以上",
+                    entries, thumbStorageProperties.getMinIntsetEntries(), entries);
+        }
+    }
+}
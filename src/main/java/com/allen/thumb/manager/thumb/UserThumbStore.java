@@ -0,0 +1,354 @@
+package com.allen.thumb.manager.thumb;
+
+import com.allen.thumb.config.ThumbStorageProperties;
+import com.allen.thumb.constant.RedisLuaScriptConstant;
+import com.allen.thumb.constant.ThumbConstant;
+import com.allen.thumb.manager.cache.FieldLoader;
+import com.allen.thumb.mapper.ThumbMapper;
+import com.allen.thumb.model.entity.Thumb;
+import com.allen.thumb.util.RedisKeyUtil;
+import com.allen.thumb.util.RedisScanUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * MQ 模式下用户点赞状态的 Redis 读写，按 thumb.storage.layout 选择 hash 或 set 结构
+ * <p>
+ * 本地缓存、布隆过滤器和失效广播始终以 thumb:{userId} 作为用户点赞的 key，
+ * set 结构或开启空闲过期时由 {@link #load} 接管 thumb:{userId} 的读取，已点赞的值为 MQ_THUMB_CONSTANT。
+ * <p>
+ * 开启空闲过期后，脚本发现用户数据已过期时返回 -2，这里用一次查询从 thumb 表取出该用户点赞过的博客，
+ * 批量写回 Redis 后重试。
+ *
+ * @author KiveAllen
+ */
+@Component
+public class UserThumbStore implements FieldLoader {
+
+    // 脚本返回：数据已过期，需要从数据库加载
+    private static final long COLD = -2;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private ThumbStorageProperties thumbStorageProperties;
+
+    @Resource
+    private ThumbMapper thumbMapper;
+
+    // 从数据库重新加载的次数
+    private final LongAdder reloads = new LongAdder();
+
+    public boolean isSetLayout() {
+        return thumbStorageProperties.getLayout() == ThumbStorageProperties.Layout.SET;
+    }
+
+    public boolean isTiered() {
+        return thumbStorageProperties.getIdleTtl() != null;
+    }
+
+    /**
+     * 点赞
+     *
+     * @return Lua 脚本的状态，见 LuaStatusEnum
+     */
+    public long thumb(Long userId, Long blogId) {
+        return update(isSetLayout() ? RedisLuaScriptConstant.THUMB_SET_SCRIPT_MQ : RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
+                userId, blogId);
+    }
+
+    /**
+     * 取消点赞
+     *
+     * @return Lua 脚本的状态，见 LuaStatusEnum
+     */
+    public long unthumb(Long userId, Long blogId) {
+        return update(isSetLayout() ? RedisLuaScriptConstant.UNTHUMB_SET_SCRIPT_MQ : RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ,
+                userId, blogId);
+    }
+
+    /**
+     * 写入点赞记录，已存在时忽略，用于消息发送失败时的补偿
+     */
+    public void add(Long userId, Long blogId) {
+        thumb(userId, blogId);
+    }
+
+    /**
+     * 删除点赞记录，不存在时忽略，用于消息发送失败时的补偿
+     */
+    public void remove(Long userId, Long blogId) {
+        unthumb(userId, blogId);
+    }
+
+    /**
+     * 用户点赞过的全部博客，set 结构时包括尚未迁移的 hash 中的博客
+     */
+    public Set<Long> blogIds(Long userId) {
+        // 已过期的先加载，set 结构时顺便完成迁移
+        if (isSetLayout() || isTiered()) {
+            load(RedisKeyUtil.getUserThumbKey(userId), List.of());
+        }
+        Set<Long> blogIds = new HashSet<>();
+        if (isSetLayout()) {
+            Set<Object> members = redisTemplate.opsForSet().members(RedisKeyUtil.getUserThumbSetKey(userId));
+            if (members != null) {
+                members.forEach(member -> blogIds.add(((Number) member).longValue()));
+            }
+        }
+        for (Object blogId : redisTemplate.opsForHash().keys(RedisKeyUtil.getUserThumbKey(userId))) {
+            blogIds.add(Long.valueOf(blogId.toString()));
+        }
+        return blogIds;
+    }
+
+    /**
+     * Redis 中现有的点赞记录，供对账等后台任务使用
+     * <p>
+     * 只读取，不执行脚本：不刷新空闲过期时间、不从数据库加载已过期的用户、不迁移 hash，
+     * 后台遍历不会让不活跃的用户一直留在 Redis 中。已过期的用户返回空集合
+     */
+    public Set<Long> storedBlogIds(Long userId) {
+        Set<Long> blogIds = new HashSet<>();
+        // 先读 hash 再读 set，两次读取之间发生的迁移不会漏掉博客
+        for (Object blogId : redisTemplate.opsForHash().keys(RedisKeyUtil.getUserThumbKey(userId))) {
+            blogIds.add(Long.valueOf(blogId.toString()));
+        }
+        if (isSetLayout()) {
+            Set<Object> members = redisTemplate.opsForSet().members(RedisKeyUtil.getUserThumbSetKey(userId));
+            if (members != null) {
+                members.forEach(member -> blogIds.add(((Number) member).longValue()));
+            }
+        }
+        return blogIds;
+    }
+
+    /**
+     * 遍历 Redis 中有点赞记录的用户，同一用户可能出现两次（迁移未完成时），已过期的用户不包括在内
+     */
+    public void forEachUserId(Consumer<Long> action) {
+        scanHashKeys((key, userId) -> action.accept(userId));
+        if (isSetLayout()) {
+            scanSetKeys((key, userId) -> action.accept(userId));
+        }
+    }
+
+    /**
+     * 把剩余的 hash 结构迁移到 set，hash 结构时不执行
+     *
+     * @return 迁移的用户数
+     */
+    public long migrateAll() {
+        if (!isSetLayout()) {
+            return 0;
+        }
+        List<Long> userIds = new ArrayList<>();
+        scanHashKeys((key, userId) -> userIds.add(userId));
+        long migrated = 0;
+        for (Long userId : userIds) {
+            Long blogs = redisTemplate.execute(RedisLuaScriptConstant.MIGRATE_THUMB_SCRIPT, keys(userId),
+                    idleTtlSeconds());
+            if (blogs != null && blogs > 0) {
+                migrated++;
+            }
+        }
+        return migrated;
+    }
+
+    /**
+     * 为开启空闲过期之前写入、之后一直没有访问的用户设置过期时间
+     *
+     * @return 设置的用户数
+     */
+    public long expireAll() {
+        if (!isTiered()) {
+            return 0;
+        }
+        Map<String, Long> keys = new HashMap<>();
+        scanHashKeys(keys::put);
+        scanSetKeys(keys::put);
+        long expired = 0;
+        for (Map.Entry<String, Long> entry : keys.entrySet()) {
+            Long result = redisTemplate.execute(RedisLuaScriptConstant.EXPIRE_THUMB_SCRIPT,
+                    List.of(entry.getKey(), RedisKeyUtil.getUserThumbColdKey(entry.getValue())), idleTtlSeconds());
+            if (result != null && result == 1) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Redis 的 set-max-intset-entries，集群时取各节点的最小值，读不到时返回 -1
+     */
+    public long intsetEntries() {
+        Properties config = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().getConfig("set-max-intset-entries"));
+        long min = -1;
+        if (config != null) {
+            // 集群时 key 带节点地址前缀
+            for (String key : config.stringPropertyNames()) {
+                Long entries = parseLong(config.getProperty(key));
+                if (entries != null && (min < 0 || entries < min)) {
+                    min = entries;
+                }
+            }
+        }
+        return min;
+    }
+
+    public long reloads() {
+        return reloads.sum();
+    }
+
+    @Override
+    public boolean supports(String hashKey) {
+        return (isSetLayout() || isTiered()) && userId(hashKey) != null;
+    }
+
+    @Override
+    public List<Object> load(String hashKey, List<String> fields) {
+        Long userId = userId(hashKey);
+        List<Object> args = new ArrayList<>(fields.size() + 1);
+        args.add(idleTtlSeconds());
+        List<Integer> positions = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            Long blogId = parseLong(fields.get(i));
+            if (blogId != null) {
+                args.add(blogId);
+                positions.add(i);
+            }
+        }
+        RedisScript<List> script = isSetLayout()
+                ? RedisLuaScriptConstant.HAS_THUMB_SET_SCRIPT : RedisLuaScriptConstant.HAS_THUMB_SCRIPT_MQ;
+        List<?> result = redisTemplate.execute(script, keys(userId), args.toArray());
+        if (((Number) result.get(0)).longValue() == COLD) {
+            reload(userId);
+            result = redisTemplate.execute(script, keys(userId), args.toArray());
+        }
+
+        List<Object> values = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            values.add(null);
+        }
+        // 用户没有数据时只返回状态
+        for (int i = 1; i < result.size(); i++) {
+            if (((Number) result.get(i)).longValue() == 1) {
+                values.set(positions.get(i - 1), ThumbConstant.MQ_THUMB_CONSTANT);
+            }
+        }
+        return values;
+    }
+
+    private long update(RedisScript<Long> script, Long userId, Long blogId) {
+        long result = redisTemplate.execute(script, keys(userId), blogId, idleTtlSeconds());
+        if (result == COLD) {
+            reload(userId);
+            result = redisTemplate.execute(script, keys(userId), blogId, idleTtlSeconds());
+        }
+        if (result == COLD) {
+            throw new RuntimeException("点赞数据加载失败");
+        }
+        return result;
+    }
+
+    // 从数据库加载用户点赞过的博客，一次查询、一次写入
+    private void reload(Long userId) {
+        List<Object> blogIds = thumbMapper.selectObjs(new LambdaQueryWrapper<Thumb>()
+                .select(Thumb::getBlogId)
+                .eq(Thumb::getUserId, userId));
+        List<Object> args = new ArrayList<>(blogIds.size() + 1);
+        args.add(idleTtlSeconds());
+        for (Object blogId : blogIds) {
+            args.add(((Number) blogId).longValue());
+        }
+        redisTemplate.execute(isSetLayout() ? RedisLuaScriptConstant.LOAD_THUMB_SET_SCRIPT
+                : RedisLuaScriptConstant.LOAD_THUMB_SCRIPT_MQ, keys(userId), args.toArray());
+        reloads.increment();
+    }
+
+    private long idleTtlSeconds() {
+        return isTiered() ? Math.max(1, thumbStorageProperties.getIdleTtl().toSeconds()) : 0;
+    }
+
+    // 同一个用户的 key 使用相同的 hash tag，在 Redis Cluster 中位于同一个 slot
+    private List<String> keys(Long userId) {
+        if (isSetLayout()) {
+            return List.of(RedisKeyUtil.getUserThumbSetKey(userId), RedisKeyUtil.getUserThumbKey(userId),
+                    RedisKeyUtil.getUserThumbColdKey(userId));
+        }
+        return List.of(RedisKeyUtil.getUserThumbKey(userId), RedisKeyUtil.getUserThumbColdKey(userId));
+    }
+
+    private void scanHashKeys(BiConsumer<String, Long> action) {
+        scanKeys(ThumbConstant.USER_THUMB_KEY_PREFIX + "%s", DataType.HASH, action);
+    }
+
+    private void scanSetKeys(BiConsumer<String, Long> action) {
+        scanKeys(ThumbConstant.USER_THUMB_SET_KEY, DataType.SET, action);
+    }
+
+    /**
+     * 逐个节点遍历用户点赞 key
+     *
+     * @param format key 的格式，%s 为 userId
+     */
+    private void scanKeys(String format, DataType type, BiConsumer<String, Long> action) {
+        int index = format.indexOf("%s");
+        String prefix = format.substring(0, index);
+        String suffix = format.substring(index + 2);
+        ScanOptions options = ScanOptions.scanOptions().match(format.formatted("*")).type(type).count(1000).build();
+        RedisScanUtil.scan(redisTemplate, options, key -> {
+            if (key.length() <= prefix.length() + suffix.length() || !key.endsWith(suffix)) {
+                return;
+            }
+            // 跳过 thumb:tempusers:* 等其他 key
+            Long userId = parseLong(key.substring(prefix.length(), key.length() - suffix.length()));
+            if (userId != null) {
+                action.accept(key, userId);
+            }
+        });
+    }
+
+    // thumb:{userId} 中的 userId，不是用户点赞 key 时返回 null
+    private static Long userId(String hashKey) {
+        if (!hashKey.startsWith(ThumbConstant.USER_THUMB_KEY_PREFIX)) {
+            return null;
+        }
+        return parseLong(hashKey.substring(ThumbConstant.USER_THUMB_KEY_PREFIX.length()));
+    }
+
+    private static Long parseLong(String s) {
+        if (s.isEmpty() || s.length() > 19) {
+            return null;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return null;
+            }
+        }
+        try {
+            return Long.valueOf(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
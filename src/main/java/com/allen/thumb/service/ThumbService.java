@@ -5,6 +5,9 @@ import com.allen.thumb.model.entity.Thumb;
 import com.baomidou.mybatisplus.extension.service.IService;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.Collection;
+import java.util.Set;
+
 /**
  * @author KiveAllen
  * @description 针对表【thumb】的数据库操作Service
@@ -32,4 +35,13 @@ public interface ThumbService extends IService<Thumb> {
 
     Boolean hasThumb(Long blogId, Long userId);
 
+    /**
+     * 批量查询用户是否点赞
+     *
+     * @param blogIds 博客 ID 列表
+     * @param userId  用户 ID
+     * @return 已点赞的博客 ID
+     */
+    Set<Long> hasThumbs(Collection<Long> blogIds, Long userId);
+
 }
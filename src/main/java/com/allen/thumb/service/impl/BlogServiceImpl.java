@@ -2,7 +2,6 @@ package com.allen.thumb.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjUtil;
-import com.allen.thumb.constant.ThumbConstant;
 import com.allen.thumb.mapper.BlogMapper;
 import com.allen.thumb.model.entity.Blog;
 import com.allen.thumb.model.entity.User;
@@ -14,13 +13,10 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * @author KiveAllen
@@ -38,9 +34,6 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
     @Lazy
     private ThumbService thumbService;
 
-    @Resource
-    private RedisTemplate<String, Object> redisTemplate;
-
     @Override
     public BlogVO getBlogVOById(long blogId, HttpServletRequest request) {
         Blog blog = this.getById(blogId);
@@ -66,25 +59,15 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
     @Override
     public List<BlogVO> getBlogVOList(List<Blog> blogList, HttpServletRequest request) {
         User loginUser = userService.getLoginUser(request);
-        Map<Long, Boolean> blogIdHasThumbMap = new HashMap<>();
-
-        if (ObjUtil.isNotEmpty(loginUser)) {
-            List<Object> blogIdList = blogList.stream().map(blog -> blog.getId().toString()).collect(Collectors.toList());
-            // 获取点赞
-            List<Object> thumbList = redisTemplate.opsForHash().multiGet(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogIdList);
-            for (int i = 0; i < thumbList.size(); i++) {
-                if (thumbList.get(i) == null) {
-                    continue;
-                }
-                blogIdHasThumbMap.put(Long.valueOf(blogIdList.get(i).toString()), true);
-            }
-        }
+        // 获取点赞
+        Set<Long> thumbedBlogIds = ObjUtil.isNotEmpty(loginUser)
+                ? thumbService.hasThumbs(blogList.stream().map(Blog::getId).toList(), loginUser.getId())
+                : Set.of();
 
         return blogList.stream()
                 .map(blog -> {
                     BlogVO blogVO = BeanUtil.copyProperties(blog, BlogVO.class);
-                    Boolean hasThumb = blogIdHasThumbMap.get(blog.getId());
-                    blogVO.setHasThumb(hasThumb != null && hasThumb);
+                    blogVO.setHasThumb(thumbedBlogIds.contains(blog.getId()));
                     return blogVO;
                 })
                 .toList();
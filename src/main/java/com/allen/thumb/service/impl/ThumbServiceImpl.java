@@ -2,6 +2,8 @@ package com.allen.thumb.service.impl;
 
 import com.allen.thumb.constant.ThumbConstant;
 import com.allen.thumb.manager.cache.CacheManager;
+import com.allen.thumb.manager.cache.HotBlogLikers;
+import com.allen.thumb.manager.cache.UserThumbFilter;
 import com.allen.thumb.mapper.ThumbMapper;
 import com.allen.thumb.model.dto.thumb.DoThumbRequest;
 import com.allen.thumb.model.entity.Blog;
@@ -18,6 +20,12 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * @author KiveAllen
  * @description 针对表【thumb】的数据库操作Service实现
@@ -39,6 +47,10 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
     // 引入缓存管理
     private final CacheManager cacheManager;
 
+    private final UserThumbFilter userThumbFilter;
+
+    private final HotBlogLikers hotBlogLikers;
+
     @Override
     public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
         if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
@@ -51,7 +63,8 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
             // 编程式事务
             return transactionTemplate.execute(status -> {
                 Long blogId = doThumbRequest.getBlogId();
-                Boolean exists = this.hasThumb(blogId, loginUser.getId());
+                // 判断是否已点赞不经过布隆过滤器，避免错过其他节点的点赞广播时重复点赞
+                boolean exists = this.loadThumbed(List.of(blogId), loginUser.getId()).contains(blogId);
                 if (exists) {
                     throw new RuntimeException("用户已点赞");
                 }
@@ -74,6 +87,8 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
                     Long realThumbId = thumb.getId();
                     redisTemplate.opsForHash().put(hashKey, fieldKey, realThumbId);
                     cacheManager.putIfPresent(hashKey, fieldKey, realThumbId);
+                    userThumbFilter.add(loginUser.getId(), blogId);
+                    hotBlogLikers.onThumb(loginUser.getId(), blogId);
                 }
 
                 // 更新成功才执行
@@ -113,6 +128,8 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
                     String fieldKey = blogId.toString();
                     redisTemplate.opsForHash().delete(hashKey, fieldKey);
                     cacheManager.putIfPresent(hashKey, fieldKey, ThumbConstant.UN_THUMB_CONSTANT);
+                    userThumbFilter.remove(loginUser.getId(), blogId);
+                    hotBlogLikers.onUnthumb(loginUser.getId(), blogId);
                 }
 
                 return success;
@@ -128,12 +145,39 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb> implements
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        Object thumbIdObj = cacheManager.get(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, blogId.toString());
-        if (thumbIdObj == null) {
-            return false;
+        return hasThumbs(List.of(blogId), userId).contains(blogId);
+    }
+
+    @Override
+    public Set<Long> hasThumbs(Collection<Long> blogIds, Long userId) {
+        // 热门博客由本地的点赞用户集合判断
+        Set<Long> thumbed = new HashSet<>();
+        List<Long> remaining = hotBlogLikers.resolve(userId, blogIds, thumbed);
+        if (remaining.isEmpty()) {
+            return thumbed;
+        }
+        // 布隆过滤器判定未点赞的不再查询
+        List<Long> candidates = userThumbFilter.mightContain(userId, remaining);
+        if (candidates.isEmpty()) {
+            return thumbed;
         }
-        Long thumbId = (Long) thumbIdObj;
-        return !thumbId.equals(ThumbConstant.UN_THUMB_CONSTANT);
+        Set<Long> loaded = loadThumbed(candidates, userId);
+        userThumbFilter.recordFalsePositives(candidates.size() - loaded.size());
+        thumbed.addAll(loaded);
+        return thumbed;
+    }
+
+    private Set<Long> loadThumbed(Collection<Long> blogIds, Long userId) {
+        List<String> fields = blogIds.stream().map(String::valueOf).toList();
+        Map<String, Object> values = cacheManager.getAll(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, fields);
+        Set<Long> thumbed = new HashSet<>();
+        values.forEach((field, thumbId) -> {
+            // 本地缓存中取消点赞的记录为 UN_THUMB_CONSTANT
+            if (!ThumbConstant.UN_THUMB_CONSTANT.equals(thumbId)) {
+                thumbed.add(Long.valueOf(field));
+            }
+        });
+        return thumbed;
     }
 
 
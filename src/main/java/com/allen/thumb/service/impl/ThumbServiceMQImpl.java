@@ -1,7 +1,11 @@
 package com.allen.thumb.service.impl;
 
-import com.allen.thumb.constant.RedisLuaScriptConstant;
+import com.allen.thumb.constant.ThumbConstant;
 import com.allen.thumb.listener.thumb.msg.ThumbEvent;
+import com.allen.thumb.manager.cache.CacheManager;
+import com.allen.thumb.manager.cache.HotBlogLikers;
+import com.allen.thumb.manager.cache.UserThumbFilter;
+import com.allen.thumb.manager.thumb.UserThumbStore;
 import com.allen.thumb.mapper.ThumbMapper;
 import com.allen.thumb.model.dto.thumb.DoThumbRequest;
 import com.allen.thumb.model.entity.Thumb;
@@ -14,12 +18,15 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.pulsar.core.PulsarTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service("thumbService")
 @Slf4j
@@ -29,10 +36,18 @@ public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
 
     private final UserService userService;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    // 点赞状态的 Redis 存储，hash 或 set 结构
+    private final UserThumbStore userThumbStore;
 
     private final PulsarTemplate<ThumbEvent> pulsarTemplate;
 
+    // 点赞状态的本地缓存，Lua 脚本成功后同步更新，消息发送失败回滚时同样更新
+    private final CacheManager cacheManager;
+
+    private final UserThumbFilter userThumbFilter;
+
+    private final HotBlogLikers hotBlogLikers;
+
     /**
  * 处理点赞请求
  *
@@ -58,16 +73,16 @@ public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request
     String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
 
     // 执行 Lua 脚本，点赞存入 Redis
-    long result = redisTemplate.execute(
-            RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
-            List.of(userThumbKey),
-            blogId
-    );
+    long result = userThumbStore.thumb(loginUserId, blogId);
 
     // 如果点赞失败（用户已点赞），抛出异常
     if (LuaStatusEnum.FAIL.getValue() == result) {
         throw new RuntimeException("用户已点赞");
     }
+    String fieldKey = blogId.toString();
+    cacheManager.putIfPresent(userThumbKey, fieldKey, ThumbConstant.MQ_THUMB_CONSTANT);
+    userThumbFilter.add(loginUserId, blogId);
+    hotBlogLikers.onThumb(loginUserId, blogId);
 
     // 创建点赞事件对象，准备发送到消息队列
     ThumbEvent thumbEvent = ThumbEvent.builder()
@@ -77,9 +92,12 @@ public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request
             .eventTime(LocalDateTime.now())
             .build();
 
-    // 异步发送点赞事件到消息队列，如果发送失败，则从Redis中删除点赞记录，并记录错误日志
+    // 异步发送点赞事件到消息队列，如果发送失败，则从Redis和本地缓存中删除点赞记录，并记录错误日志
     pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-        redisTemplate.opsForHash().delete(userThumbKey, blogId.toString(), true);
+        userThumbStore.remove(loginUserId, blogId);
+        cacheManager.putIfPresent(userThumbKey, fieldKey, ThumbConstant.UN_THUMB_CONSTANT);
+        userThumbFilter.remove(loginUserId, blogId);
+        hotBlogLikers.onUnthumb(loginUserId, blogId);
         log.error("点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId, ex);
         return null;
     });
@@ -99,22 +117,26 @@ public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request
         Long blogId = doThumbRequest.getBlogId();
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUserId);
         // 执行 Lua 脚本，点赞记录从 Redis 删除  
-        long result = redisTemplate.execute(
-                RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ,
-                List.of(userThumbKey),
-                blogId
-        );
+        long result = userThumbStore.unthumb(loginUserId, blogId);
         if (LuaStatusEnum.FAIL.getValue() == result) {
             throw new RuntimeException("用户未点赞");
         }
+        String fieldKey = blogId.toString();
+        cacheManager.putIfPresent(userThumbKey, fieldKey, ThumbConstant.UN_THUMB_CONSTANT);
+        userThumbFilter.remove(loginUserId, blogId);
+        hotBlogLikers.onUnthumb(loginUserId, blogId);
         ThumbEvent thumbEvent = ThumbEvent.builder()
                 .blogId(blogId)
                 .userId(loginUserId)
                 .type(ThumbEvent.EventType.DECR)
                 .eventTime(LocalDateTime.now())
                 .build();
+        // 发送失败时恢复 Redis 和本地缓存中的点赞记录
         pulsarTemplate.sendAsync("thumb-topic", thumbEvent).exceptionally(ex -> {
-            redisTemplate.opsForHash().put(userThumbKey, blogId.toString(), true);
+            userThumbStore.add(loginUserId, blogId);
+            cacheManager.putIfPresent(userThumbKey, fieldKey, ThumbConstant.MQ_THUMB_CONSTANT);
+            userThumbFilter.add(loginUserId, blogId);
+            hotBlogLikers.onThumb(loginUserId, blogId);
             log.error("点赞事件发送失败: userId={}, blogId={}", loginUserId, blogId, ex);
             return null;
         });
@@ -124,7 +146,35 @@ public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        return redisTemplate.opsForHash().hasKey(RedisKeyUtil.getUserThumbKey(userId), blogId.toString());
+        return hasThumbs(List.of(blogId), userId).contains(blogId);
     }
 
+    @Override
+    public Set<Long> hasThumbs(Collection<Long> blogIds, Long userId) {
+        // 热门博客由本地的点赞用户集合判断
+        Set<Long> thumbed = new HashSet<>();
+        List<Long> remaining = hotBlogLikers.resolve(userId, blogIds, thumbed);
+        if (remaining.isEmpty()) {
+            return thumbed;
+        }
+        // 布隆过滤器判定未点赞的不再查询
+        List<Long> candidates = userThumbFilter.mightContain(userId, remaining);
+        if (candidates.isEmpty()) {
+            return thumbed;
+        }
+        List<String> fields = candidates.stream().map(String::valueOf).toList();
+        Map<String, Object> values = cacheManager.getAll(RedisKeyUtil.getUserThumbKey(userId), fields);
+        int loaded = 0;
+        // 按下标对应回博客 ID，不再把字段解析回 Long
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = values.get(fields.get(i));
+            // 本地缓存中取消点赞的记录为 UN_THUMB_CONSTANT
+            if (value != null && !ThumbConstant.UN_THUMB_CONSTANT.equals(value)) {
+                thumbed.add(candidates.get(i));
+                loaded++;
+            }
+        }
+        userThumbFilter.recordFalsePositives(candidates.size() - loaded);
+        return thumbed;
+    }
 }
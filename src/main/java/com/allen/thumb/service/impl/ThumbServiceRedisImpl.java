@@ -19,6 +19,10 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Service("thumbServiceRedis")
 @Slf4j
@@ -39,8 +43,10 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
 
         String timeSlice = getTimeSlice();
         // Redis Key  
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
+        String tempThumbKey = RedisKeyUtil.getTempThumbKey(loginUser.getId(), timeSlice);
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+        // 先登记用户，同步任务据此找到按用户拆分的临时 key
+        redisTemplate.opsForSet().add(RedisKeyUtil.getTempThumbUsersKey(timeSlice), loginUser.getId());
 
         // 执行 Lua 脚本  
         Long result = redisTemplate.execute(
@@ -73,8 +79,10 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
         // 计算时间片  
         String timeSlice = getTimeSlice();
         // Redis Key  
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
+        String tempThumbKey = RedisKeyUtil.getTempThumbKey(loginUser.getId(), timeSlice);
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+        // 先登记用户，同步任务据此找到按用户拆分的临时 key
+        redisTemplate.opsForSet().add(RedisKeyUtil.getTempThumbUsersKey(timeSlice), loginUser.getId());
 
         // 执行 Lua 脚本  
         Long result = redisTemplate.execute(
@@ -105,4 +113,17 @@ public class ThumbServiceRedisImpl extends ServiceImpl<ThumbMapper, Thumb> imple
     public Boolean hasThumb(Long blogId, Long userId) {
         return redisTemplate.opsForHash().hasKey(RedisKeyUtil.getUserThumbKey(userId), blogId.toString());
     }
+
+    @Override
+    public Set<Long> hasThumbs(Collection<Long> blogIds, Long userId) {
+        List<Object> fields = blogIds.stream().map(blogId -> (Object) blogId.toString()).toList();
+        List<Object> values = redisTemplate.opsForHash().multiGet(RedisKeyUtil.getUserThumbKey(userId), fields);
+        Set<Long> thumbed = new HashSet<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (values.get(i) != null) {
+                thumbed.add(Long.valueOf((String) fields.get(i)));
+            }
+        }
+        return thumbed;
+    }
 }
@@ -0,0 +1,21 @@
+package com.allen.thumb.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * 当前应用节点标识
+ *
+ * @author KiveAllen
+ */
+public class NodeUtil {
+
+    // pid@hostname，再加一段随机串，避免容器内 pid 相同的节点冲突
+    private static final String NODE_ID = ManagementFactory.getRuntimeMXBean().getName()
+            + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    public static String getNodeId() {
+        return NODE_ID;
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.allen.thumb.util;
 
 
+import com.allen.thumb.constant.HotKeyConstant;
 import com.allen.thumb.constant.ThumbConstant;
 
 /**
@@ -12,11 +13,53 @@ public class RedisKeyUtil {
         return ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
     }
 
+    /**
+     * 获取 用户点赞 set key
+     */
+    public static String getUserThumbSetKey(Long userId) {
+        return ThumbConstant.USER_THUMB_SET_KEY.formatted(userId);
+    }
+
+    /**
+     * 获取 用户点赞数据已设置空闲过期的标记 key
+     */
+    public static String getUserThumbColdKey(Long userId) {
+        return ThumbConstant.USER_THUMB_COLD_KEY.formatted(userId);
+    }
+
     /**
      * 获取 临时点赞记录 key
      */
-    public static String getTempThumbKey(String time) {
-        return ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(time);
+    public static String getTempThumbKey(Long userId, String time) {
+        return ThumbConstant.TEMP_THUMB_KEY.formatted(userId, time);
+    }
+
+    /**
+     * 获取 所有按用户拆分的临时点赞记录 key 的匹配模式
+     */
+    public static String getTempThumbKeyPattern() {
+        return ThumbConstant.TEMP_THUMB_KEY.formatted("*", "*");
+    }
+
+    /**
+     * 获取 某个时间片有临时点赞记录的用户 key
+     */
+    public static String getTempThumbUsersKey(String time) {
+        return ThumbConstant.TEMP_THUMB_USERS_KEY.formatted(time);
+    }
+
+    /**
+     * 获取 按用户拆分之前的临时点赞记录 key
+     */
+    public static String getLegacyTempThumbKey(String time) {
+        return ThumbConstant.LEGACY_TEMP_THUMB_KEY.formatted(time);
+    }
+
+    /**
+     * 获取 节点热 Key 上报 key
+     */
+    public static String getNodeHotKey(String nodeId) {
+        return HotKeyConstant.NODE_HOT_KEY_PREFIX.formatted(nodeId);
     }
 
 }
@@ -0,0 +1,46 @@
+package com.allen.thumb.util;
+
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.function.Consumer;
+
+/**
+ * 遍历 Redis 中的 key
+ * <p>
+ * RedisTemplate.scan 在 Redis Cluster 下不支持跨节点遍历，这里逐个主节点执行 SCAN，
+ * 单机时与 RedisTemplate.scan 相同。
+ *
+ * @author KiveAllen
+ */
+public class RedisScanUtil {
+
+    @SuppressWarnings("unchecked")
+    public static void scan(RedisTemplate<String, ?> redisTemplate, ScanOptions options, Consumer<String> action) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        try (RedisConnection connection = redisTemplate.getRequiredConnectionFactory().getConnection()) {
+            if (connection instanceof RedisClusterConnection clusterConnection) {
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        scan(clusterConnection.scan(node, options), keySerializer, action);
+                    }
+                }
+            } else {
+                scan(connection.keyCommands().scan(options), keySerializer, action);
+            }
+        }
+    }
+
+    private static void scan(Cursor<byte[]> cursor, RedisSerializer<String> keySerializer, Consumer<String> action) {
+        try (cursor) {
+            while (cursor.hasNext()) {
+                action.accept(keySerializer.deserialize(cursor.next()));
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.allen.thumb;
+
+import com.allen.thumb.config.RedisConfig;
+import com.allen.thumb.config.ThumbStorageProperties;
+import com.allen.thumb.constant.HotKeyConstant;
+import com.allen.thumb.constant.RedisLuaScriptConstant;
+import com.allen.thumb.constant.ThumbConstant;
+import com.allen.thumb.manager.thumb.UserThumbStore;
+import com.allen.thumb.mapper.ThumbMapper;
+import com.allen.thumb.util.RedisKeyUtil;
+import com.allen.thumb.util.RedisScanUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在本地 Redis Cluster 上执行 Lua 脚本和按节点遍历，确认没有 CROSSSLOT 错误
+ * <p>
+ * 集群的启动方式见 docker/redis_cluster_docker.txt，通过环境变量指定节点后运行：
+ * REDIS_CLUSTER_NODES=127.0.0.1:7000,127.0.0.1:7001,127.0.0.1:7002 mvn test -Dtest=RedisClusterIntegrationTests
+ *
+ * @author KiveAllen
+ */
+@EnabledIfEnvironmentVariable(named = "REDIS_CLUSTER_NODES", matches = ".+")
+class RedisClusterIntegrationTests {
+
+    // 分散到不同的 slot 和节点
+    private static final int USERS = 64;
+
+    private static final String TIME_SLICE = "it:00:00";
+
+    // 在 key 所在的节点上执行
+    private static final RedisScript<String> OBJECT_ENCODING = new DefaultRedisScript<>(
+            "return redis.call('OBJECT', 'ENCODING', KEYS[1])", String.class);
+
+    private static final RedisScript<Long> MEMORY_USAGE = new DefaultRedisScript<>(
+            "return redis.call('MEMORY', 'USAGE', KEYS[1], 'SAMPLES', 0)", Long.class);
+
+    private JedisConnectionFactory connectionFactory;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private ThumbStorageProperties storageProperties;
+
+    private UserThumbStore userThumbStore;
+
+    @BeforeEach
+    void setup() {
+        List<String> nodes = Arrays.asList(System.getenv("REDIS_CLUSTER_NODES").split(","));
+        connectionFactory = new JedisConnectionFactory(new RedisClusterConfiguration(nodes));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        storageProperties = new ThumbStorageProperties();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory, new SimpleMeterRegistry(), storageProperties);
+
+        userThumbStore = new UserThumbStore();
+        ReflectionTestUtils.setField(userThumbStore, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(userThumbStore, "thumbStorageProperties", storageProperties);
+        // 过期后从数据库加载的用户没有点赞
+        ReflectionTestUtils.setField(userThumbStore, "thumbMapper", Proxy.newProxyInstance(
+                ThumbMapper.class.getClassLoader(), new Class<?>[]{ThumbMapper.class},
+                (proxy, method, args) -> List.of()));
+        cleanup();
+    }
+
+    @AfterEach
+    void cleanup() {
+        Set<String> keys = new HashSet<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            keys.add(RedisKeyUtil.getUserThumbKey(userId));
+            keys.add(RedisKeyUtil.getUserThumbSetKey(userId));
+            keys.add(RedisKeyUtil.getUserThumbColdKey(userId));
+            keys.add(RedisKeyUtil.getTempThumbKey(userId, TIME_SLICE));
+        }
+        keys.add(RedisKeyUtil.getTempThumbUsersKey(TIME_SLICE));
+        redisTemplate.delete(keys);
+    }
+
+    @Test
+    void thumbScriptRunsOnEveryNode() {
+        for (long userId = 1; userId <= USERS; userId++) {
+            List<String> keys = List.of(RedisKeyUtil.getTempThumbKey(userId, TIME_SLICE),
+                    RedisKeyUtil.getUserThumbKey(userId));
+            assertThat(redisTemplate.execute(RedisLuaScriptConstant.THUMB_SCRIPT, keys, userId, 7L)).isEqualTo(1L);
+            assertThat(redisTemplate.execute(RedisLuaScriptConstant.THUMB_SCRIPT, keys, userId, 7L)).isEqualTo(-1L);
+        }
+
+        Set<String> tempKeys = new HashSet<>();
+        RedisScanUtil.scan(redisTemplate, ScanOptions.scanOptions().match(RedisKeyUtil.getTempThumbKeyPattern())
+                .count(1000).build(), tempKeys::add);
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertThat(tempKeys).contains(RedisKeyUtil.getTempThumbKey(userId, TIME_SLICE));
+        }
+    }
+
+    @Test
+    void tieredSetLayout() {
+        storageProperties.setLayout(ThumbStorageProperties.Layout.SET);
+        storageProperties.setIdleTtl(Duration.ofDays(1));
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertThat(userThumbStore.thumb(userId, 7L)).isEqualTo(1L);
+            assertThat(userThumbStore.blogIds(userId)).containsExactly(7L);
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        userThumbStore.forEachUserId(userIds::add);
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertThat(userIds).contains(userId);
+        }
+
+        // 模拟空闲过期：数据不在而标记还在，读取时从数据库加载
+        redisTemplate.delete(RedisKeyUtil.getUserThumbSetKey(1L));
+        assertThat(userThumbStore.blogIds(1L)).isEmpty();
+        assertThat(userThumbStore.reloads()).isEqualTo(1);
+    }
+
+    /**
+     * 删空用户数据时一并删除冷数据标记，之后的点赞不再从数据库加载
+     */
+    @Test
+    void emptyKeyClearsColdMarker() {
+        storageProperties.setIdleTtl(Duration.ofDays(1));
+        for (ThumbStorageProperties.Layout layout : ThumbStorageProperties.Layout.values()) {
+            storageProperties.setLayout(layout);
+            long userId = layout.ordinal() + 1;
+            String key = layout == ThumbStorageProperties.Layout.SET
+                    ? RedisKeyUtil.getUserThumbSetKey(userId) : RedisKeyUtil.getUserThumbKey(userId);
+            String coldKey = RedisKeyUtil.getUserThumbColdKey(userId);
+
+            assertThat(userThumbStore.thumb(userId, 7L)).isEqualTo(1L);
+            assertThat(redisTemplate.hasKey(coldKey)).as(layout.name()).isTrue();
+            assertThat(userThumbStore.unthumb(userId, 7L)).isEqualTo(1L);
+            assertThat(redisTemplate.hasKey(key)).as(layout.name()).isFalse();
+            assertThat(redisTemplate.hasKey(coldKey)).as(layout.name()).isFalse();
+
+            assertThat(userThumbStore.thumb(userId, 8L)).isEqualTo(1L);
+            assertThat(userThumbStore.blogIds(userId)).containsExactly(8L);
+        }
+        assertThat(userThumbStore.reloads()).isZero();
+    }
+
+    /**
+     * 对账读取不刷新空闲过期时间，用户请求的读取才刷新
+     */
+    @Test
+    void storedBlogIdsKeepsIdleTtl() {
+        storageProperties.setIdleTtl(Duration.ofDays(1));
+        String key = RedisKeyUtil.getUserThumbKey(1L);
+        assertThat(userThumbStore.thumb(1L, 7L)).isEqualTo(1L);
+        redisTemplate.expire(key, Duration.ofSeconds(100));
+
+        assertThat(userThumbStore.storedBlogIds(1L)).containsExactly(7L);
+        assertThat(redisTemplate.getExpire(key)).isLessThanOrEqualTo(100L);
+
+        assertThat(userThumbStore.blogIds(1L)).containsExactly(7L);
+        assertThat(redisTemplate.getExpire(key)).isGreaterThan(100L);
+    }
+
+    /**
+     * set 结构每个点赞的字节数：不超过 set-max-intset-entries 时为 intset，超过后改为 hashtable
+     */
+    @Test
+    void setLayoutBytesPerLike() {
+        long threshold = userThumbStore.intsetEntries();
+        assertThat(threshold).isPositive();
+        String small = RedisKeyUtil.getUserThumbSetKey(1L);
+        String large = RedisKeyUtil.getUserThumbSetKey(2L);
+        long smallLikes = Math.min(threshold, 256);
+        long largeLikes = threshold + 256;
+        // 博客 ID 取真实的雪花 ID 量级，intset 为 8 字节编码
+        long firstBlogId = 1_912_345_678_901_234_567L;
+        for (long i = 0; i < smallLikes; i++) {
+            redisTemplate.opsForSet().add(small, firstBlogId + i);
+        }
+        for (long i = 0; i < largeLikes; i++) {
+            redisTemplate.opsForSet().add(large, firstBlogId + i);
+        }
+
+        assertThat(redisTemplate.execute(OBJECT_ENCODING, List.of(small))).isEqualTo("intset");
+        assertThat(redisTemplate.execute(OBJECT_ENCODING, List.of(large))).isEqualTo("hashtable");
+        double smallBytesPerLike = (double) redisTemplate.execute(MEMORY_USAGE, List.of(small)) / smallLikes;
+        double largeBytesPerLike = (double) redisTemplate.execute(MEMORY_USAGE, List.of(large)) / largeLikes;
+        assertThat(smallBytesPerLike).isLessThan(12);
+        assertThat(largeBytesPerLike).isGreaterThan(40);
+    }
+
+    @Test
+    void migrateOnAccess() {
+        storageProperties.setLayout(ThumbStorageProperties.Layout.SET);
+        for (long userId = 1; userId <= USERS; userId++) {
+            redisTemplate.opsForHash().put(RedisKeyUtil.getUserThumbKey(userId), "7", 1L);
+            redisTemplate.opsForHash().put(RedisKeyUtil.getUserThumbKey(userId), "8", 1L);
+        }
+
+        // 查询和点赞都会先把 hash 并入 set
+        for (long userId = 1; userId <= USERS; userId++) {
+            if (userId % 2 == 0) {
+                assertThat(userThumbStore.blogIds(userId)).containsExactlyInAnyOrder(7L, 8L);
+            } else {
+                assertThat(userThumbStore.thumb(userId, 9L)).isEqualTo(1L);
+                assertThat(userThumbStore.thumb(userId, 7L)).isEqualTo(-1L);
+                assertThat(userThumbStore.blogIds(userId)).containsExactlyInAnyOrder(7L, 8L, 9L);
+            }
+            assertThat(redisTemplate.hasKey(RedisKeyUtil.getUserThumbKey(userId))).isFalse();
+        }
+        assertThat(userThumbStore.reloads()).isZero();
+    }
+
+    @Test
+    void migrateAllMovesEveryNode() {
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertThat(userThumbStore.thumb(userId, 7L)).isEqualTo(1L);
+        }
+        // hash 结构时不迁移
+        assertThat(userThumbStore.migrateAll()).isZero();
+
+        storageProperties.setLayout(ThumbStorageProperties.Layout.SET);
+        assertThat(userThumbStore.migrateAll()).isEqualTo(USERS);
+        assertThat(userThumbStore.migrateAll()).isZero();
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertThat(redisTemplate.hasKey(RedisKeyUtil.getUserThumbKey(userId))).isFalse();
+            assertThat(userThumbStore.blogIds(userId)).containsExactly(7L);
+        }
+    }
+
+    /**
+     * 不是数字的字段不传给脚本，结果按原位置返回 null
+     */
+    @Test
+    void loadMapsPositionsAroundNonNumericFields() {
+        List<String> fields = List.of("7", "abc", "8", "", "9", "-1");
+        for (ThumbStorageProperties.Layout layout : ThumbStorageProperties.Layout.values()) {
+            storageProperties.setLayout(layout);
+            // hash 结构只有开启空闲过期时才经过脚本
+            storageProperties.setIdleTtl(layout == ThumbStorageProperties.Layout.HASH ? Duration.ofDays(1) : null);
+            long userId = layout.ordinal() + 1;
+            userThumbStore.thumb(userId, 7L);
+            userThumbStore.thumb(userId, 9L);
+
+            assertThat(userThumbStore.load(RedisKeyUtil.getUserThumbKey(userId), fields)).as(layout.name())
+                    .containsExactly(ThumbConstant.MQ_THUMB_CONSTANT, null, null, null, ThumbConstant.MQ_THUMB_CONSTANT, null);
+            assertThat(userThumbStore.load(RedisKeyUtil.getUserThumbKey(userId), List.of("abc"))).as(layout.name())
+                    .containsExactly((Object) null);
+        }
+    }
+
+    @Test
+    void hotKeyMergeRunsInOneSlot() {
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        String nodeA = RedisKeyUtil.getNodeHotKey("it-a");
+        String nodeB = RedisKeyUtil.getNodeHotKey("it-b");
+        try {
+            stringRedisTemplate.opsForZSet().add(nodeA, "1", 3);
+            stringRedisTemplate.opsForZSet().add(nodeB, "1", 5);
+            stringRedisTemplate.opsForZSet().unionAndStore(nodeA, List.of(nodeB), HotKeyConstant.GLOBAL_HOT_KEY,
+                    Aggregate.SUM, Weights.of(1, 1));
+            assertThat(stringRedisTemplate.opsForZSet().score(HotKeyConstant.GLOBAL_HOT_KEY, "1")).isEqualTo(8.0);
+        } finally {
+            stringRedisTemplate.delete(List.of(nodeA, nodeB, HotKeyConstant.GLOBAL_HOT_KEY));
+        }
+    }
+}
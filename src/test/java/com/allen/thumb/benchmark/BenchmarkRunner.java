@@ -0,0 +1,36 @@
+package com.allen.thumb.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH 压测入口，默认带上 GC profiler 输出每次操作的分配字节数（gc.alloc.rate.norm）
+ * <p>
+ * 运行方式：mvn -Pbenchmark -DskipTests verify
+ * <p>
+ * 参数与 JMH 命令行一致，通过 -Djmh.args 传入，例如只跑读路径并换成 SpaceSaving：
+ * mvn -Pbenchmark -DskipTests verify -Djmh.args="CacheManagerBenchmark -p algorithm=SPACE_SAVING"
+ * 结果同时写入 target/jmh-result.json，便于和上一次的结果对比。
+ *
+ * @author KiveAllen
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*Benchmark");
+        }
+        options.parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json");
+        new Runner(options.build()).run();
+    }
+}
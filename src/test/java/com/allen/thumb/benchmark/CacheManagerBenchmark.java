@@ -0,0 +1,127 @@
+package com.allen.thumb.benchmark;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.constant.ThumbConstant;
+import com.allen.thumb.manager.cache.CacheManager;
+import com.allen.thumb.manager.cache.InMemoryInvalidationBus;
+import com.allen.thumb.manager.cache.TopKAlgorithm;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.support.TestCacheManagers;
+import com.allen.thumb.support.ZipfGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多级缓存读路径压测
+ * <p>
+ * CacheManager 直接 new 出来，Redis 换成进程内的 {@link InMemoryRedisTemplate}，
+ * 可以设置模拟的往返延迟。请求的 userId 均匀分布，blogId 服从 Zipf 分布，
+ * 热门博客会被识别为热 Key 并进入本地缓存。
+ *
+ * @author KiveAllen
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheManagerBenchmark {
+
+    private static final int STREAM_LENGTH = 1 << 20;
+
+    private static final int USERS = 100;
+
+    private static final int BLOGS = 1000;
+
+    @Param({"0.8", "1.2"})
+    private double skew;
+
+    // 模拟的 Redis 往返延迟，0 表示只测本地开销
+    @Param({"0", "100000"})
+    private long latencyNanos;
+
+    @Param({"HEAVY_KEEPER"})
+    private TopKAlgorithm algorithm;
+
+    // 点赞状态是否放在堆外
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private CacheManager cacheManager;
+
+    private String[] hashKeys;
+
+    private String[] fields;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int user = 0; user < USERS; user++) {
+            Map<Object, Object> hash = redisTemplate.hash(ThumbConstant.USER_THUMB_KEY_PREFIX + user);
+            for (int blog = 0; blog < BLOGS; blog++) {
+                hash.put(String.valueOf(blog), random.nextLong(1, Long.MAX_VALUE));
+            }
+        }
+        redisTemplate.setLatencyNanos(latencyNanos);
+
+        HotKeyProperties properties = new HotKeyProperties();
+        properties.setAlgorithm(algorithm);
+        properties.getLocalCache().setMaximumSize(USERS * BLOGS);
+        properties.getLocalCache().getOffHeap().setEnabled(offHeap);
+        properties.getLocalCache().getOffHeap().setCapacity(DataSize.ofMegabytes(16));
+        HotKeyProperties.Invalidation invalidation = properties.getInvalidation();
+        cacheManager = TestCacheManagers.create(redisTemplate, properties, new InMemoryInvalidationBus(
+                new InMemoryInvalidationBus.Hub(), invalidation.getFlushInterval(), invalidation.getMaxBatchSize()));
+
+        int[] blogs = ZipfGenerator.ranks(BLOGS, skew, STREAM_LENGTH, random);
+        hashKeys = new String[STREAM_LENGTH];
+        fields = new String[STREAM_LENGTH];
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            hashKeys[i] = ThumbConstant.USER_THUMB_KEY_PREFIX + random.nextInt(USERS);
+            fields[i] = String.valueOf(blogs[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = ThreadLocalRandom.current().nextInt(STREAM_LENGTH);
+
+        int next() {
+            index = (index + 1) & (STREAM_LENGTH - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object get(Cursor cursor) {
+        int i = cursor.next();
+        return cacheManager.get(hashKeys[i], fields[i]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object getContended(Cursor cursor) {
+        int i = cursor.next();
+        return cacheManager.get(hashKeys[i], fields[i]);
+    }
+}
@@ -0,0 +1,151 @@
+package com.allen.thumb.benchmark;
+
+import com.allen.thumb.manager.cache.Item;
+import com.allen.thumb.manager.cache.TopK;
+import com.allen.thumb.manager.cache.TopKAlgorithm;
+import com.allen.thumb.support.ZipfGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热 Key 检测器压测
+ * <p>
+ * 覆盖 add / addAll / list / fading 四个操作，参数为 k、Zipf 偏斜系数和检测算法；
+ * add 分单线程和满核两种线程数，mixed 组模拟读写并发（3 个线程写、1 个线程读 list）。
+ * 其他线程数可以用 -t 指定，例如 -Djmh.args="HeavyKeeperBenchmark.addContended -t 2"。
+ *
+ * @author KiveAllen
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeavyKeeperBenchmark {
+
+    // key 流长度，2 的幂，便于用掩码循环取 key
+    private static final int STREAM_LENGTH = 1 << 20;
+
+    private static final int KEY_SPACE = 100_000;
+
+    // addAll 每批聚合前的事件数
+    private static final int BATCH_EVENTS = 10_000;
+
+    @Param({"100", "20000"})
+    private int k;
+
+    @Param({"0.8", "1.2"})
+    private double skew;
+
+    @Param({"HEAVY_KEEPER", "SHARDED_HEAVY_KEEPER"})
+    private TopKAlgorithm algorithm;
+
+    private TopK topK;
+
+    private String[] keys;
+
+    // 预先聚合好的一批计数，模拟一个消费批次
+    private Map<String, Integer> batch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = ZipfGenerator.stream("blog-", KEY_SPACE, skew, STREAM_LENGTH, 0, new SplittableRandom(42));
+        topK = algorithm.create(k, 100000, 5, 0.92, 10);
+        // 先灌入一轮流量，让 TopK 处于稳定状态
+        for (String key : keys) {
+            topK.add(key, 1);
+        }
+        batch = new HashMap<>();
+        for (int i = 0; i < BATCH_EVENTS; i++) {
+            batch.merge(keys[i], 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 每个线程从随机位置开始顺序读取 key 流
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = ThreadLocalRandom.current().nextInt(STREAM_LENGTH);
+
+        int next() {
+            index = (index + 1) & (STREAM_LENGTH - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object add(Cursor cursor) {
+        return topK.add(keys[cursor.next()], 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object addContended(Cursor cursor) {
+        return topK.add(keys[cursor.next()], 1);
+    }
+
+    /**
+     * 一批聚合后的计数整体写入，按单批耗时统计
+     */
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object addAll() {
+        return topK.addAll(batch);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Item> list() {
+        return topK.list();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Object mixedAdd(Cursor cursor) {
+        return topK.add(keys[cursor.next()], 1);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<Item> mixedList() {
+        return topK.list();
+    }
+
+    /**
+     * 衰减要扫描整张桶表，按单次耗时统计
+     */
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void fading() {
+        topK.fading();
+    }
+}
@@ -0,0 +1,77 @@
+package com.allen.thumb.benchmark;
+
+import com.allen.thumb.config.RedisConfig;
+import com.allen.thumb.config.ThumbStorageProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hash 值编码压测
+ * <p>
+ * 每次操作的耗时见结果，每次操作的分配字节数见 gc.alloc.rate.norm，
+ * 写入 Redis 的字节数在 setup 时打印（value bytes in Redis）。
+ * value 为 THUMB_ID 时是雪花算法的点赞记录 ID，由 Java 写入；为 LUA_ONE 时是 Lua 脚本写入的 "1"，只测读取。
+ *
+ * @author KiveAllen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisValueCodecBenchmark {
+
+    public enum Value {
+        THUMB_ID, LUA_ONE
+    }
+
+    @Param({"JSON", "COMPACT"})
+    private ThumbStorageProperties.ValueCodec codec;
+
+    @Param({"THUMB_ID", "LUA_ONE"})
+    private Value value;
+
+    private RedisSerializer<Object> serializer;
+
+    private Object object;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serializer = RedisConfig.valueSerializer(codec, RedisConfig.jsonSerializer());
+        if (value == Value.THUMB_ID) {
+            object = 1912345678901234567L;
+            bytes = serializer.serialize(object);
+        } else {
+            object = 1L;
+            bytes = "1".getBytes(StandardCharsets.UTF_8);
+        }
+        System.out.printf("%n%s %s: value bytes in Redis = %d%n", codec, value, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(object);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+}
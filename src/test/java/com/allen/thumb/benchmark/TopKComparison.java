@@ -0,0 +1,41 @@
+package com.allen.thumb.benchmark;
+
+import com.allen.thumb.manager.cache.TopK;
+import com.allen.thumb.manager.cache.TopKAlgorithm;
+import com.allen.thumb.support.TopKAccuracy;
+
+/**
+ * TopK 算法对比
+ * <p>
+ * 用同一条 Zipf 流量和突发流量回放给每种算法，输出 precision@k、ARE（Top K 的平均相对误差）和估算内存，
+ * 用于按实际流量形态选择 hotkey.algorithm。吞吐量见 JMH 压测 HeavyKeeperBenchmark 的 algorithm 参数。
+ * <p>
+ * 运行方式：mvn -Ptopk-comparison -DskipTests verify
+ * <p>
+ * WINDOWED_HEAVY_KEEPER 统计的是最近几个阶段的总和，口径不同，突发流量下 ARE 偏高属预期。
+ *
+ * @author KiveAllen
+ */
+public class TopKComparison {
+
+    private static final int K = 100;
+
+    private static final int STREAM_LENGTH = 2_000_000;
+
+    public static void main(String[] args) {
+        print("zipf s=1.0", TopKAccuracy.zipf(1.0, STREAM_LENGTH, 42));
+        print("bursty s=1.2", TopKAccuracy.bursty(1.2, STREAM_LENGTH, 5, 7));
+    }
+
+    private static void print(String name, String[][] phases) {
+        System.out.printf("%n%s, %d ops, precision@%d%n", name, STREAM_LENGTH, K);
+        System.out.printf("%-22s %10s %8s %12s%n", "algorithm", "precision", "ARE", "bytes");
+        for (TopKAlgorithm algorithm : TopKAlgorithm.values()) {
+            TopK topK = algorithm.create(K, 100_000, 5, 0.92, 10);
+            TopKAccuracy.Report report = TopKAccuracy.evaluate(topK, phases, K);
+            System.out.printf("%-22s %10.2f %8.3f %12d%n",
+                    algorithm, report.precision(), report.are(), topK.estimatedBytes());
+            topK.close();
+        }
+    }
+}
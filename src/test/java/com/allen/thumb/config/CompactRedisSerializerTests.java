@@ -0,0 +1,56 @@
+package com.allen.thumb.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 紧凑编码与 JSON 的互读
+ *
+ * @author KiveAllen
+ */
+class CompactRedisSerializerTests {
+
+    private final RedisSerializer<Object> json = RedisConfig.jsonSerializer();
+
+    private final CompactRedisSerializer compact = new CompactRedisSerializer(json, true);
+
+    @Test
+    void roundTripsPrimitives() {
+        for (Object value : List.of(0L, 1L, -1L, 1912345678901234567L, Long.MAX_VALUE, Long.MIN_VALUE,
+                0, Integer.MIN_VALUE, Integer.MAX_VALUE, true, false, "", "点赞")) {
+            assertThat(compact.deserialize(compact.serialize(value))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void thumbIdIsSmallerThanJson() {
+        long thumbId = 1912345678901234567L;
+        assertThat(json.serialize(thumbId)).hasSize(19);
+        assertThat(compact.serialize(thumbId)).hasSize(10);
+    }
+
+    @Test
+    void readsJsonAndLuaWrittenValues() {
+        assertThat(compact.deserialize("1".getBytes(StandardCharsets.UTF_8))).isEqualTo(1);
+        assertThat(compact.deserialize("-42".getBytes(StandardCharsets.UTF_8))).isEqualTo(-42);
+        assertThat(compact.deserialize(json.serialize(1912345678901234567L))).isEqualTo(1912345678901234567L);
+        assertThat(compact.deserialize(json.serialize("点赞"))).isEqualTo("点赞");
+
+        Map<String, Long> map = new HashMap<>(Map.of("thumbId", 1L));
+        assertThat(compact.deserialize(compact.serialize(map))).isEqualTo(json.deserialize(json.serialize(map)));
+    }
+
+    @Test
+    void dualReadWritesJson() {
+        CompactRedisSerializer dualRead = new CompactRedisSerializer(json, false);
+        assertThat(dualRead.serialize(1912345678901234567L)).isEqualTo(json.serialize(1912345678901234567L));
+        assertThat(dualRead.deserialize(compact.serialize(1912345678901234567L))).isEqualTo(1912345678901234567L);
+    }
+}
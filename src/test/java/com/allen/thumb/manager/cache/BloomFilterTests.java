@@ -0,0 +1,37 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 布隆过滤器误判率
+ *
+ * @author KiveAllen
+ */
+class BloomFilterTests {
+
+    @Test
+    void noFalseNegativesAndBoundedFalsePositives() {
+        int capacity = 1000;
+        for (double fpp : new double[]{0.01, 0.001}) {
+            BloomFilter filter = new BloomFilter(capacity, fpp);
+            for (long blogId = 0; blogId < capacity; blogId++) {
+                filter.add(blogId * 7919);
+            }
+            for (long blogId = 0; blogId < capacity; blogId++) {
+                assertThat(filter.mightContain(blogId * 7919)).isTrue();
+            }
+
+            int probes = 200_000;
+            int falsePositives = 0;
+            for (long i = 0; i < probes; i++) {
+                if (filter.mightContain(-1 - i)) {
+                    falsePositives++;
+                }
+            }
+            double rate = (double) falsePositives / probes;
+            assertThat(rate).as("capacity=%d fpp=%s", capacity, fpp).isLessThan(fpp * 1.5);
+        }
+    }
+}
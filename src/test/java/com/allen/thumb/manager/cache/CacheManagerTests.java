@@ -0,0 +1,98 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.support.TestCacheManagers;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 多级缓存读路径
+ *
+ * @author KiveAllen
+ */
+class CacheManagerTests {
+
+    @Test
+    void getAllServesLocalHitsAndLoadsTheRest() {
+        InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+        Map<Object, Object> hash = redisTemplate.hash("thumb:1");
+        hash.put("100", 1L);
+        hash.put("101", 2L);
+        HotKeyProperties properties = new HotKeyProperties();
+        properties.setMinCount(2);
+        CacheManager cacheManager = TestCacheManagers.create(redisTemplate, properties,
+                new InMemoryInvalidationBus(new InMemoryInvalidationBus.Hub(), Duration.ofMillis(20), 512));
+
+        // 100 访问两次成为热 Key，101 只访问一次
+        cacheManager.get("thumb:1", "100");
+        Map<String, Object> values = cacheManager.getAll("thumb:1", List.of("100", "101", "102"));
+        assertThat(values).isEqualTo(Map.of("100", 1L, "101", 2L));
+        assertThat(cacheManager.localCacheSize()).isEqualTo(1L);
+
+        // 本地缓存中的字段不再读 Redis，其余字段读到最新值
+        hash.put("100", 10L);
+        hash.put("101", 20L);
+        hash.put("102", 30L);
+        values = cacheManager.getAll("thumb:1", List.of("100", "101", "102"));
+        assertThat(values).isEqualTo(Map.of("100", 1L, "101", 20L, "102", 30L));
+    }
+
+    @Test
+    void invalidReconfigureChangesNothing() {
+        HotKeyProperties properties = new HotKeyProperties();
+        CacheManager cacheManager = TestCacheManagers.create(new InMemoryRedisTemplate(), properties,
+                new InMemoryInvalidationBus(new InMemoryInvalidationBus.Hub(), Duration.ofMillis(20), 512));
+        TopK detector = cacheManager.getHotKeyDetector();
+
+        // 宽度合法、过期时间不合法，整个修改都不生效
+        assertThatThrownBy(() -> cacheManager.reconfigure(p -> {
+            p.setWidth(200_000);
+            p.getLocalCache().setExpireAfterWrite(Duration.ZERO);
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(properties.getWidth()).isEqualTo(100_000);
+        assertThat(properties.getLocalCache().getExpireAfterWrite()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(cacheManager.getHotKeyDetector()).isSameAs(detector);
+
+        cacheManager.reconfigure(p -> p.setWidth(200_000));
+        assertThat(properties.getWidth()).isEqualTo(200_000);
+        assertThat(cacheManager.getHotKeyDetector()).isNotSameAs(detector);
+        assertThat(cacheManager.getHotKeyDetector().sketchStats().width()).isEqualTo(200_000);
+    }
+
+    /**
+     * 读 Redis 期间只有同一个 key 的失效会让读到的值不进本地缓存
+     */
+    @Test
+    void invalidationOnlyRejectsFillsOfTheSameKey() throws Exception {
+        InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+        redisTemplate.hash("thumb:1").put("100", 1L);
+        redisTemplate.hash("thumb:1").put("200", 2L);
+        HotKeyProperties properties = new HotKeyProperties();
+        properties.setMinCount(1);
+        CacheManager cacheManager = TestCacheManagers.create(redisTemplate, properties,
+                new InMemoryInvalidationBus(new InMemoryInvalidationBus.Hub(), Duration.ofMillis(20), 512));
+        redisTemplate.setLatencyNanos(TimeUnit.MILLISECONDS.toNanos(200));
+
+        // 读取 100 期间 200 失效，100 仍写入本地缓存
+        Thread reader = Thread.ofPlatform().start(() -> cacheManager.get("thumb:1", "100"));
+        Thread.sleep(50);
+        cacheManager.invalidate("thumb:1", "200");
+        reader.join();
+        assertThat(cacheManager.localCacheSize()).isEqualTo(1);
+
+        // 读取 200 期间 200 自己失效，读到的值不写入
+        reader = Thread.ofPlatform().start(() -> cacheManager.get("thumb:1", "200"));
+        Thread.sleep(50);
+        cacheManager.invalidate("thumb:1", "200");
+        reader.join();
+        assertThat(cacheManager.localCacheSize()).isEqualTo(1);
+    }
+}
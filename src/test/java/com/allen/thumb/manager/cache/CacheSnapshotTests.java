@@ -0,0 +1,37 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 缓存快照文件
+ *
+ * @author KiveAllen
+ */
+class CacheSnapshotTests {
+
+    @Test
+    void roundTripAndDetectCorruption() throws IOException {
+        Path dir = Files.createTempDirectory("cache-snapshot");
+        Path path = dir.resolve("snapshot.bin");
+        assertThat(CacheSnapshot.read(path)).isNull();
+
+        CacheSnapshot snapshot = new CacheSnapshot(System.currentTimeMillis(),
+                List.of(new Item("100", 42), new Item("博客", 7)),
+                List.of("thumb:1:100", "thumb:2:100"));
+        snapshot.write(path);
+        assertThat(CacheSnapshot.read(path)).isEqualTo(snapshot);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+        assertThatThrownBy(() -> CacheSnapshot.read(path)).isInstanceOf(IOException.class);
+    }
+}
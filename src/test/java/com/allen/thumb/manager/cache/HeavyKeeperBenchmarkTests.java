@@ -0,0 +1,231 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.support.ZipfGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HeavyKeeper 多线程写入的正确性
+ * <p>
+ * 多个线程同时写入同一个 HeavyKeeper，校验热点 key 能被识别出来；
+ * 吞吐量见 JMH 压测 HeavyKeeperBenchmark（mvn -Pbenchmark -DskipTests verify）
+ *
+ * @author KiveAllen
+ */
+class HeavyKeeperBenchmarkTests {
+
+    private static final int THREADS = 4;
+
+    private static final int OPS_PER_THREAD = 20_000;
+
+    // 热点 key 数量，其余为长尾 key
+    private static final int HOT_KEYS = 20;
+
+    private static final int COLD_KEYS = 100_000;
+
+    private static final int ZIPF_LENGTH = 400_000;
+
+    @Test
+    void contention() throws Exception {
+        assertFindsHotKeys(new HeavyKeeper(100, 100000, 5, 0.92, 10));
+    }
+
+    @Test
+    void contentionWithLargeK() throws Exception {
+        assertFindsHotKeys(new HeavyKeeper(20_000, 100000, 5, 0.92, 10));
+    }
+
+    @Test
+    void shardedContention() throws Exception {
+        assertFindsHotKeys(new ShardedHeavyKeeper(THREADS, 100, 100000, 5, 0.92, 10));
+    }
+
+    private void assertFindsHotKeys(TopK topK) throws InterruptedException {
+        runConcurrently(topK, THREADS);
+        Set<String> topKeys = topK.list().stream()
+                .limit(HOT_KEYS)
+                .map(Item::key)
+                .collect(Collectors.toSet());
+        assertThat(topKeys).containsAll(hotKeys());
+    }
+
+    /**
+     * 同样的 Zipf 流量（s=1.2）分别写入单个 HeavyKeeper 和分片 HeavyKeeper，
+     * 对比合并后 Top 20 与真实 Top 20 的重合率
+     */
+    @Test
+    void shardedAccuracy() throws Exception {
+        String[] stream = ZipfGenerator.stream("blog-", COLD_KEYS, 1.2, ZIPF_LENGTH, 0, new SplittableRandom(42));
+        Set<String> trueTop = exactTop(stream);
+        HeavyKeeper single = new HeavyKeeper(100, 100000, 5, 0.92, 10);
+        ShardedHeavyKeeper sharded = new ShardedHeavyKeeper(THREADS, 100, 100000, 5, 0.92, 10);
+        replay(single, stream, THREADS);
+        replay(sharded, stream, THREADS);
+
+        assertThat(precision(single.list(), trueTop)).isGreaterThanOrEqualTo(0.9);
+        assertThat(precision(sharded.list(), trueTop)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    /**
+     * 博客 ID 这类数字 key 不经过 murmur64，热点 key 为 [0, HOT_KEYS)，长尾 key 从 HOT_KEYS 开始
+     */
+    @Test
+    void numericKeyContention() throws Exception {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(100, 100000, 5, 0.92, 10);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        long key = random.nextBoolean() ?
+                                random.nextInt(HOT_KEYS) :
+                                HOT_KEYS + random.nextInt(COLD_KEYS);
+                        heavyKeeper.add(Long.toString(key), 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+
+        Set<String> topKeys = heavyKeeper.list().stream()
+                .limit(HOT_KEYS)
+                .map(Item::key)
+                .collect(Collectors.toSet());
+        assertThat(topKeys).containsAll(IntStream.range(0, HOT_KEYS).mapToObj(Integer::toString).toList());
+        // 带前导零的数字仍按字符串哈希，不与数值相同的 key 冲突
+        assertThat(HeavyKeeper.hash("05")).isNotEqualTo(HeavyKeeper.hash("5"));
+    }
+
+    /**
+     * 带权写入按几何分布采样衰减，挤占概率应与逐个写入一致；批量写入耗时见 HeavyKeeperBenchmark#addAll
+     */
+    @Test
+    void weightedAdd() {
+        int trials = 20_000;
+        long keyA = 1L;
+        long keyB = 2L;
+        int unitWins = 0;
+        int weightedWins = 0;
+        for (int i = 0; i < trials; i++) {
+            BucketTable unit = new BucketTable(1, 1, 0.92);
+            BucketTable weighted = new BucketTable(1, 1, 0.92);
+            unit.add(keyA, 10);
+            weighted.add(keyA, 10);
+            for (int j = 0; j < 20; j++) {
+                unit.add(keyB, 1);
+            }
+            weighted.add(keyB, 20);
+            unitWins += unit.query(keyB) > 0 ? 1 : 0;
+            weightedWins += weighted.query(keyB) > 0 ? 1 : 0;
+        }
+        double unitRate = (double) unitWins / trials;
+        double weightedRate = (double) weightedWins / trials;
+        assertThat(Math.abs(unitRate - weightedRate)).isLessThan(0.03);
+
+        HeavyKeeper heavyKeeper = new HeavyKeeper(100, 100000, 5, 0.92, 10);
+        Map<String, Integer> batch = new HashMap<>();
+        for (int i = 0; i < HOT_KEYS; i++) {
+            batch.put("hot-" + i, 1_000_000);
+        }
+        for (int i = 0; i < 1000; i++) {
+            batch.put("cold-" + i, 1 + i % 10);
+        }
+        heavyKeeper.addAll(batch);
+        Set<String> topKeys = heavyKeeper.list().stream()
+                .limit(HOT_KEYS)
+                .map(Item::key)
+                .collect(Collectors.toSet());
+        assertThat(topKeys).containsAll(hotKeys());
+    }
+
+    private static double precision(List<Item> items, Set<String> trueTop) {
+        Set<String> top = items.stream().limit(HOT_KEYS).map(Item::key).collect(Collectors.toSet());
+        return top.stream().filter(trueTop::contains).count() / (double) HOT_KEYS;
+    }
+
+    private static Set<String> exactTop(String[] stream) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String key : stream) {
+            counts.merge(key, 1, Integer::sum);
+        }
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(HOT_KEYS)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    // 流量按线程均分，各线程同时写入
+    private static void replay(TopK topK, String[] stream, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        int slice = stream.length / threads;
+        for (int t = 0; t < threads; t++) {
+            int from = t * slice;
+            int to = t == threads - 1 ? stream.length : from + slice;
+            Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    for (int i = from; i < to; i++) {
+                        topK.add(stream[i], 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+    }
+
+    static void runConcurrently(TopK topK, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        // 一半流量落在热点 key 上
+                        String key = random.nextBoolean() ?
+                                "hot-" + random.nextInt(HOT_KEYS) :
+                                "cold-" + random.nextInt(COLD_KEYS);
+                        topK.add(key, 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+    }
+
+    static List<String> hotKeys() {
+        return IntStream.range(0, HOT_KEYS).mapToObj(i -> "hot-" + i).toList();
+    }
+}
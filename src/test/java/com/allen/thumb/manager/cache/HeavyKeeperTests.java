@@ -0,0 +1,53 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HeavyKeeper 数字 key 写入和桶表统计
+ *
+ * @author KiveAllen
+ */
+class HeavyKeeperTests {
+
+    @Test
+    void numericHashMatchesDecimalString() {
+        for (long key : new long[]{0, 7, 123_456_789, 999_999_999_999_999_999L,
+                1_000_000_000_000_000_000L, Long.MAX_VALUE, -5}) {
+            assertThat(HeavyKeeper.hash(key)).as("%d", key).isEqualTo(HeavyKeeper.hash(Long.toString(key)));
+        }
+    }
+
+    /**
+     * 数字 key 与字符串形式计入同一个 key，未进入 TopK 前不创建字符串
+     */
+    @Test
+    void numericAndStringKeysShareCounts() {
+        for (TopKAlgorithm algorithm : TopKAlgorithm.values()) {
+            TopK topK = algorithm.create(10, 1000, 3, 0.92, 10);
+            assertThat(topK.add(100L, 5)).as(algorithm.name()).isSameAs(TopKHeap.NOT_HOT);
+            AddResult result = topK.add("100", 5);
+            assertThat(result.isHotKey()).as(algorithm.name()).isTrue();
+            assertThat(topK.add(100L, 1).getCurrentKey()).as(algorithm.name()).isEqualTo("100");
+            assertThat(topK.list()).as(algorithm.name()).isEqualTo(List.of(new Item("100", 11)));
+            topK.close();
+        }
+    }
+
+    /**
+     * 带权写入的冲突按增量单位计数，与分母的总增量口径一致
+     */
+    @Test
+    void weightedCollisionCountsEveryUnit() {
+        // 只有一个桶，b 的写入全部与 a 冲突
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1, 1, 0.92, 1);
+        heavyKeeper.add("a", 1_000);
+        heavyKeeper.add("b", 100);
+        heavyKeeper.fading();
+
+        assertThat(heavyKeeper.sketchStats().collisionRate()).isEqualTo(100.0 / 1_100);
+    }
+}
@@ -0,0 +1,190 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.mapper.ThumbMapper;
+import com.allen.thumb.model.entity.Thumb;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.support.TestCacheManagers;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 热门博客点赞用户的加载、并发修改和失效
+ *
+ * @author KiveAllen
+ */
+class HotBlogLikersTests {
+
+    private static final Long BLOG_ID = 100L;
+
+    private final InMemoryInvalidationBus.Hub hub = new InMemoryInvalidationBus.Hub();
+
+    private final HotKeyProperties properties = new HotKeyProperties();
+
+    // 数据库中的点赞用户
+    private final List<Object> likers = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger counts = new AtomicInteger();
+
+    // 查询点赞用户时等待放行
+    private CountDownLatch selecting = new CountDownLatch(0);
+
+    private CountDownLatch release = new CountDownLatch(0);
+
+    private InMemoryInvalidationBus bus;
+
+    private CacheManager cacheManager;
+
+    private HotBlogLikers hotBlogLikers;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper 需要实体的字段映射
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Thumb.class);
+    }
+
+    @BeforeEach
+    void setup() {
+        bus = new InMemoryInvalidationBus(hub, Duration.ofMillis(5), 512);
+        cacheManager = TestCacheManagers.create(new InMemoryRedisTemplate(), properties, bus);
+        hotBlogLikers = new HotBlogLikers();
+        ReflectionTestUtils.setField(hotBlogLikers, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(hotBlogLikers, "hotKeyProperties", properties);
+        ReflectionTestUtils.setField(hotBlogLikers, "invalidationBus", bus);
+        ReflectionTestUtils.setField(hotBlogLikers, "thumbMapper", Proxy.newProxyInstance(
+                ThumbMapper.class.getClassLoader(), new Class<?>[]{ThumbMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "selectCount" -> {
+                        counts.incrementAndGet();
+                        yield (long) likers.size();
+                    }
+                    case "selectObjs" -> {
+                        selecting.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                        yield List.copyOf(likers);
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        hotBlogLikers.init();
+    }
+
+    @AfterEach
+    void close() {
+        bus.close();
+    }
+
+    @Test
+    void changesDuringLoadAreKept() throws Exception {
+        likers.addAll(List.of(1L, 2L));
+        selecting = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        // 加载前的点赞还没有入库
+        hotBlogLikers.onThumb(3L, BLOG_ID);
+        makeHot();
+        hotBlogLikers.refresh();
+
+        assertThat(selecting.await(5, TimeUnit.SECONDS)).isTrue();
+        hotBlogLikers.onUnthumb(1L, BLOG_ID);
+        hotBlogLikers.onThumb(4L, BLOG_ID);
+        release.countDown();
+        await(() -> hotBlogLikers.blogCount() == 1);
+
+        assertThat(liked(1L)).isFalse();
+        assertThat(liked(2L)).isTrue();
+        assertThat(liked(3L)).isTrue();
+        assertThat(liked(4L)).isTrue();
+        assertThat(liked(5L)).isFalse();
+    }
+
+    @Test
+    void remoteChangeMakesUserUnknown() throws Exception {
+        likers.add(1L);
+        makeHot();
+        hotBlogLikers.refresh();
+        await(() -> hotBlogLikers.blogCount() == 1);
+        assertThat(liked(1L)).isTrue();
+
+        InMemoryInvalidationBus remote = new InMemoryInvalidationBus(hub, Duration.ofMillis(5), 512);
+        remote.publish("thumb:1:" + BLOG_ID);
+        remote.close();
+        await(() -> !hotBlogLikers.resolve(1L, List.of(BLOG_ID), new HashSet<>()).isEmpty());
+        // 其他用户不受影响
+        assertThat(liked(2L)).isFalse();
+    }
+
+    @Test
+    void oversizedBlogIsNotLoaded() throws Exception {
+        properties.getHotBlog().setMaxLikers(1);
+        likers.addAll(List.of(1L, 2L));
+        makeHot();
+        hotBlogLikers.refresh();
+        await(() -> counts.get() == 1 && loading().isEmpty());
+
+        assertThat(hotBlogLikers.blogCount()).isZero();
+        assertThat(hotBlogLikers.resolve(1L, List.of(BLOG_ID), new HashSet<>())).containsExactly(BLOG_ID);
+        // 记住超过上限，不再反复查询
+        hotBlogLikers.refresh();
+        assertThat(counts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void reloadAfterMaxAge() throws Exception {
+        properties.getHotBlog().setMaxAge(Duration.ofMillis(100));
+        likers.add(1L);
+        makeHot();
+        hotBlogLikers.refresh();
+        await(() -> hotBlogLikers.blogCount() == 1);
+        // 其他节点的点赞入库，广播丢失
+        likers.add(2L);
+        assertThat(liked(2L)).isFalse();
+
+        Thread.sleep(150);
+        hotBlogLikers.refresh();
+        await(() -> Boolean.TRUE.equals(liked(2L)));
+        assertThat(counts.get()).isEqualTo(2);
+    }
+
+    private void makeHot() {
+        cacheManager.recordAccess(Map.of(BLOG_ID.toString(), properties.getMinCount() * 10));
+    }
+
+    // 本地无法判断时返回 null
+    private Boolean liked(Long userId) {
+        Set<Long> thumbed = new HashSet<>();
+        List<Long> unresolved = hotBlogLikers.resolve(userId, List.of(BLOG_ID), thumbed);
+        return unresolved.isEmpty() ? thumbed.contains(BLOG_ID) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, LikerSet> loading() {
+        return (Map<Long, LikerSet>) ReflectionTestUtils.getField(hotBlogLikers, "loading");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
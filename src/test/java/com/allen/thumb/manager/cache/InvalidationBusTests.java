@@ -0,0 +1,78 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.support.TestCacheManagers;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地缓存失效广播
+ *
+ * @author KiveAllen
+ */
+class InvalidationBusTests {
+
+    @Test
+    void coalesceAndSkipSelf() throws Exception {
+        InMemoryInvalidationBus.Hub hub = new InMemoryInvalidationBus.Hub();
+        InMemoryInvalidationBus sender = new InMemoryInvalidationBus(hub, Duration.ofMillis(50), 512);
+        InMemoryInvalidationBus receiver = new InMemoryInvalidationBus(hub, Duration.ofMillis(50), 512);
+        List<Set<String>> sent = new CopyOnWriteArrayList<>();
+        List<Set<String>> received = new CopyOnWriteArrayList<>();
+        sender.subscribe(sent::add);
+        receiver.subscribe(received::add);
+
+        for (int i = 0; i < 1000; i++) {
+            sender.publish("user:thumb:" + (i % 10) + ":1");
+        }
+        sender.close();
+        receiver.close();
+
+        Set<String> keys = new HashSet<>();
+        received.forEach(keys::addAll);
+        assertThat(keys).hasSize(10);
+        // 同一个 key 在一个发送间隔内只发送一次
+        assertThat(received.stream().mapToInt(Set::size).sum()).isLessThan(100);
+        assertThat(sent).isEmpty();
+    }
+
+    /**
+     * 两个节点共用一个 Redis，一个节点修改后另一个节点的本地缓存被清理
+     */
+    @Test
+    void twoNodesStayCoherent() throws Exception {
+        InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+        redisTemplate.hash("user:thumb:1").put("100", 1L);
+        InMemoryInvalidationBus.Hub hub = new InMemoryInvalidationBus.Hub();
+        List<CacheManager> nodes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            HotKeyProperties properties = new HotKeyProperties();
+            properties.setMinCount(1);
+            nodes.add(TestCacheManagers.create(redisTemplate, properties,
+                    new InMemoryInvalidationBus(hub, Duration.ofMillis(5), 512)));
+        }
+        CacheManager writer = nodes.get(0);
+        CacheManager reader = nodes.get(1);
+        assertThat(reader.get("user:thumb:1", "100")).isEqualTo(1L);
+        assertThat(reader.localCacheSize()).isEqualTo(1);
+
+        redisTemplate.hash("user:thumb:1").put("100", 2L);
+        writer.putIfPresent("user:thumb:1", "100", 2L);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (reader.localCacheSize() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(reader.get("user:thumb:1", "100")).isEqualTo(2L);
+    }
+}
@@ -0,0 +1,53 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 热门博客点赞用户集合
+ *
+ * @author KiveAllen
+ */
+class LikerSetTests {
+
+    @Test
+    void unknownUntilLoaded() {
+        LikerSet likers = new LikerSet();
+        likers.record(1, LikerSet.State.LIKED);
+        assertThat(likers.contains(1)).isNull();
+
+        likers.load(new long[]{9, 3, 5});
+        assertThat(likers.contains(1)).isTrue();
+        assertThat(likers.contains(3)).isTrue();
+        assertThat(likers.contains(4)).isFalse();
+    }
+
+    @Test
+    void changesOverrideLoadedUsers() {
+        LikerSet likers = new LikerSet();
+        likers.load(new long[]{3, 5});
+
+        likers.record(3, LikerSet.State.UNLIKED);
+        likers.record(7, LikerSet.State.LIKED);
+        likers.record(5, LikerSet.State.UNKNOWN);
+        assertThat(likers.contains(3)).isFalse();
+        assertThat(likers.contains(7)).isTrue();
+        assertThat(likers.contains(5)).isNull();
+    }
+
+    @Test
+    void changesDuringLoadWinOverRecentChanges() {
+        LikerSet likers = new LikerSet();
+        // 加载期间本节点取消了点赞
+        likers.record(3, LikerSet.State.UNLIKED);
+        // 加载前的点赞尚未入库
+        likers.recordIfAbsent(3, LikerSet.State.LIKED);
+        likers.recordIfAbsent(4, LikerSet.State.LIKED);
+        likers.load(new long[]{});
+
+        assertThat(likers.contains(3)).isFalse();
+        assertThat(likers.contains(4)).isTrue();
+        assertThat(likers.changes()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,79 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 堆外点赞状态缓存
+ *
+ * @author KiveAllen
+ */
+class OffHeapThumbStoreTests {
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        // 单段 4096 个槽位，2000 个 key 不会触发淘汰，频繁删除验证后移删除不会破坏探测链
+        OffHeapThumbStore store = new OffHeapThumbStore(4096 * 32, 1, Duration.ofMinutes(10));
+        Map<String, Long> reference = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            String hashKey = "thumb:" + (1_900_000_000_000_000_000L + random.nextInt(50));
+            String field = String.valueOf(1_800_000_000_000_000_000L + random.nextInt(40));
+            String compositeKey = hashKey + ":" + field;
+            int op = random.nextInt(10);
+            if (op < 5) {
+                long value = random.nextLong(Long.MAX_VALUE);
+                store.put(hashKey, field, value);
+                reference.put(compositeKey, value);
+            } else if (op < 7) {
+                store.invalidate(compositeKey);
+                reference.remove(compositeKey);
+            } else {
+                assertThat(store.get(hashKey, field)).isEqualTo(reference.get(compositeKey));
+            }
+        }
+        assertThat(store.size()).isEqualTo((long) reference.size());
+    }
+
+    @Test
+    void evictsWhenFull() {
+        // 单段 512 个槽位，最多 384 个条目
+        OffHeapThumbStore store = new OffHeapThumbStore(512 * 32, 1, Duration.ofMinutes(10));
+        for (long blogId = 0; blogId < 10_000; blogId++) {
+            store.put("thumb:1", String.valueOf(blogId), blogId);
+            Long value = store.get("thumb:1", String.valueOf(blogId));
+            assertThat(value).isEqualTo(blogId);
+        }
+        assertThat(store.size()).isEqualTo(384L);
+        // 淘汰只会让条目消失，不会返回错误的值
+        for (long blogId = 0; blogId < 10_000; blogId++) {
+            Long value = store.get("thumb:1", String.valueOf(blogId));
+            if (value != null) {
+                assertThat(value).isEqualTo(blogId);
+            }
+        }
+    }
+
+    @Test
+    void keepsEntriesBelowCapacity() {
+        OffHeapThumbStore store = new OffHeapThumbStore(1 << 20, 4, Duration.ofMinutes(10));
+        for (long blogId = 0; blogId < 10_000; blogId++) {
+            assertThat(store.put("thumb:42", String.valueOf(blogId), blogId)).isTrue();
+        }
+        for (long blogId = 0; blogId < 10_000; blogId++) {
+            assertThat(store.get("thumb:42", String.valueOf(blogId))).isEqualTo(blogId);
+        }
+        store.replaceIfPresent("thumb:42", "7", 0L);
+        assertThat(store.get("thumb:42", "7")).isEqualTo(0L);
+        store.replaceIfPresent("thumb:42", "10001", 1L);
+        assertThat(store.get("thumb:42", "10001")).isNull();
+        assertThat(store.put("thumb:temp:11:20:20", "1", 1L)).isFalse();
+        assertThat(store.put("thumb:42", "1", "not a number")).isFalse();
+    }
+}
@@ -0,0 +1,50 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 分片 HeavyKeeper 按合并后的计数判断热 Key
+ *
+ * @author KiveAllen
+ */
+class ShardedHeavyKeeperTests {
+
+    private static final int SHARDS = 4;
+
+    private static final int MIN_COUNT = 40;
+
+    @Test
+    void shardLocalCountIsNotEnough() {
+        ShardedHeavyKeeper topK = new ShardedHeavyKeeper(SHARDS, 10, 1000, 3, 0.92, MIN_COUNT);
+        // 分片内达到 minCount / 分片数，合并计数还不够
+        assertThat(topK.add("a", MIN_COUNT / SHARDS).isHotKey()).isFalse();
+        assertThat(topK.addAll(Map.of("a", 1))).isEmpty();
+        assertThat(topK.add("a", MIN_COUNT).isHotKey()).isTrue();
+        assertThat(topK.addAll(Map.of("a", 1))).extracting(AddResult::getCurrentKey).containsExactly("a");
+    }
+
+    /**
+     * 多个线程分别写入，各分片计数之和达到 minCount 后成为热 Key
+     */
+    @Test
+    void countsAddUpAcrossShards() throws Exception {
+        ShardedHeavyKeeper topK = new ShardedHeavyKeeper(SHARDS, 10, 1000, 3, 0.92, MIN_COUNT);
+        int perThread = MIN_COUNT / SHARDS;
+        for (int t = 0; t < SHARDS - 1; t++) {
+            Thread thread = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    topK.add("a", 1);
+                }
+            });
+            thread.join();
+        }
+        for (int i = 0; i < perThread - 1; i++) {
+            assertThat(topK.add("a", 1).isHotKey()).isFalse();
+        }
+        assertThat(topK.add("a", 1).isHotKey()).isTrue();
+    }
+}
@@ -0,0 +1,72 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 并发未命中合并
+ *
+ * @author KiveAllen
+ */
+class SingleFlightTests {
+
+    private static final int THREADS = 1000;
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("thumb:1:100", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return 42L;
+                }).value()));
+            }
+            // 等所有线程都进入等待后再放行加载
+            while (singleFlight.loads() + singleFlight.coalesced() < THREADS) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Object> result : results) {
+                assertThat(result.get()).isEqualTo(42L);
+            }
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(singleFlight.coalesced()).isEqualTo(THREADS - 1);
+
+        // 加载完成后不再复用
+        assertThat(singleFlight.execute("thumb:1:100", () -> 43L).value()).isEqualTo(43L);
+    }
+
+    @Test
+    void failurePropagatesAndIsNotCached() {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        assertThatThrownBy(() -> singleFlight.execute("k", () -> {
+            throw new IllegalStateException("redis down");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.execute("k", () -> 1L).value()).isEqualTo(1L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
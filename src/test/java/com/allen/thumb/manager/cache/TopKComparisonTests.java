@@ -0,0 +1,50 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.support.TopKAccuracy;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TopK 算法的精度下限
+ * <p>
+ * 用较短的 Zipf 流量和突发流量回放给每种算法，只校验 precision@k 和 ARE 的阈值；
+ * 完整的精度、内存对比见 TopKComparison（mvn -Ptopk-comparison -DskipTests verify），
+ * 吞吐量见 JMH 压测 HeavyKeeperBenchmark。
+ *
+ * @author KiveAllen
+ */
+class TopKComparisonTests {
+
+    private static final int K = 100;
+
+    private static final int STREAM_LENGTH = 200_000;
+
+    @Test
+    void zipf() {
+        String[][] stream = TopKAccuracy.zipf(1.0, STREAM_LENGTH, 42);
+        for (TopKAlgorithm algorithm : TopKAlgorithm.values()) {
+            TopKAccuracy.Report report = TopKAccuracy.evaluate(create(algorithm), stream, K);
+            assertThat(report.precision()).as(algorithm.name()).isGreaterThanOrEqualTo(0.9);
+        }
+    }
+
+    /**
+     * WINDOWED_HEAVY_KEEPER 统计的是最近几个阶段的总和，与减半的真实计数口径不同，不参与比较
+     */
+    @Test
+    void bursty() {
+        String[][] stream = TopKAccuracy.bursty(1.2, STREAM_LENGTH, 5, 7);
+        for (TopKAlgorithm algorithm : EnumSet.complementOf(EnumSet.of(TopKAlgorithm.WINDOWED_HEAVY_KEEPER))) {
+            TopKAccuracy.Report report = TopKAccuracy.evaluate(create(algorithm), stream, K);
+            assertThat(report.precision()).as(algorithm.name()).isGreaterThanOrEqualTo(0.9);
+            assertThat(report.are()).as(algorithm.name()).isLessThan(0.1);
+        }
+    }
+
+    private static TopK create(TopKAlgorithm algorithm) {
+        return algorithm.create(K, 100_000, 5, 0.92, 10);
+    }
+}
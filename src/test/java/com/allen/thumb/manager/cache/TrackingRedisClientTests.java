@@ -0,0 +1,99 @@
+package com.allen.thumb.manager.cache;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.support.TestCacheManagers;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.csc.Cache;
+import redis.clients.jedis.csc.CacheStats;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis 客户端缓存的暂停、恢复和回退
+ *
+ * @author KiveAllen
+ */
+class TrackingRedisClientTests {
+
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(200);
+
+    @Test
+    void disabledClientIsNeverAvailable() {
+        TrackingRedisClient client = TrackingRedisClient.disabled();
+        assertThat(client.isEnabled()).isFalse();
+        assertThat(client.isAvailable()).isFalse();
+        assertThat(client.stats()).isNull();
+        assertThat(client.hitRatio()).isZero();
+        assertThat(client.size()).isZero();
+        assertThat(client.fallbacks()).isZero();
+    }
+
+    @Test
+    void suspendFallsBackUntilRetryInterval() throws Exception {
+        UnifiedJedis jedis = mock(UnifiedJedis.class);
+        when(jedis.hget(any(byte[].class), any(byte[].class))).thenReturn("1".getBytes(StandardCharsets.UTF_8));
+        TrackingRedisClient client = new TrackingRedisClient(jedis, RedisSerializer.string(), RETRY_INTERVAL);
+        assertThat(client.isAvailable()).isTrue();
+        assertThat(client.hget("thumb:1", "100")).isEqualTo("1");
+
+        // 出错计一次回退，暂停期间每次检查也计一次
+        client.suspend(new JedisConnectionException("connection reset"));
+        assertThat(client.fallbacks()).isEqualTo(1);
+        assertThat(client.isAvailable()).isFalse();
+        assertThat(client.fallbacks()).isEqualTo(2);
+
+        Thread.sleep(RETRY_INTERVAL.toMillis() + 50);
+        assertThat(client.isAvailable()).isTrue();
+        assertThat(client.hget("thumb:1", "100")).isEqualTo("1");
+        assertThat(client.isAvailable()).isTrue();
+        assertThat(client.fallbacks()).isEqualTo(2);
+    }
+
+    @Test
+    void cacheManagerFallsBackToHotKeyCache() {
+        InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+        redisTemplate.hash("thumb:1").put("100", 1L);
+        CacheManager cacheManager = TestCacheManagers.create(redisTemplate, new HotKeyProperties(),
+                new InMemoryInvalidationBus(new InMemoryInvalidationBus.Hub(), Duration.ofMillis(20), 512));
+        UnifiedJedis jedis = mock(UnifiedJedis.class);
+        when(jedis.hget(any(byte[].class), any(byte[].class))).thenThrow(new JedisConnectionException("down"));
+        TrackingRedisClient client = new TrackingRedisClient(jedis, RedisSerializer.java(), RETRY_INTERVAL);
+        ReflectionTestUtils.setField(cacheManager, "trackingRedisClient", client);
+
+        assertThat(cacheManager.get("thumb:1", "100")).isEqualTo(1L);
+        // 暂停期间不再访问客户端缓存
+        assertThat(cacheManager.get("thumb:1", "100")).isEqualTo(1L);
+        verify(jedis, times(1)).hget(any(byte[].class), any(byte[].class));
+        assertThat(client.fallbacks()).isEqualTo(2);
+    }
+
+    @Test
+    void metricsReadJedisCacheStats() {
+        UnifiedJedis jedis = mock(UnifiedJedis.class);
+        Cache cache = mock(Cache.class);
+        CacheStats stats = mock(CacheStats.class);
+        when(jedis.getCache()).thenReturn(cache);
+        when(cache.getStats()).thenReturn(stats);
+        when(cache.getSize()).thenReturn(5);
+        when(stats.getHitCount()).thenReturn(3L);
+        when(stats.getMissCount()).thenReturn(1L);
+        TrackingRedisClient client = new TrackingRedisClient(jedis, RedisSerializer.string(), RETRY_INTERVAL);
+
+        assertThat(client.isEnabled()).isTrue();
+        assertThat(client.hitRatio()).isEqualTo(0.75);
+        assertThat(client.size()).isEqualTo(5);
+    }
+}
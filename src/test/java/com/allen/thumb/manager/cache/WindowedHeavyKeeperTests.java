@@ -0,0 +1,64 @@
+package com.allen.thumb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 滑动窗口的轮转和旧计数过期
+ *
+ * @author KiveAllen
+ */
+class WindowedHeavyKeeperTests {
+
+    @Test
+    void countsExpireAfterWindowCountRotations() {
+        TopK topK = TopKAlgorithm.WINDOWED_HEAVY_KEEPER.create(10, 1000, 3, 0.92, 1, 3);
+        topK.add("a", 10);
+        topK.fading();
+        topK.add("b", 5);
+        assertThat(counts(topK)).isEqualTo(Map.of("a", 10, "b", 5));
+
+        // a 所在的子窗口还在窗口内，计数不衰减
+        topK.fading();
+        assertThat(counts(topK)).isEqualTo(Map.of("a", 10, "b", 5));
+        assertThat(topK.total()).isEqualTo(15);
+
+        // 第三次轮转清空 a 所在的子窗口，a 退出 TopK
+        topK.fading();
+        assertThat(counts(topK)).isEqualTo(Map.of("b", 5));
+        assertThat(topK.total()).isEqualTo(5);
+        assertThat(topK.expelled().poll()).isEqualTo(new Item("a", 0));
+
+        topK.fading();
+        assertThat(counts(topK)).isEmpty();
+        assertThat(topK.total()).isZero();
+    }
+
+    @Test
+    void windowCountControlsWindowLength() {
+        TopK topK = TopKAlgorithm.WINDOWED_HEAVY_KEEPER.create(10, 1000, 3, 0.92, 1, 2);
+        topK.add("a", 10);
+        topK.fading();
+        assertThat(counts(topK)).containsEntry("a", 10);
+        topK.fading();
+        assertThat(counts(topK)).isEmpty();
+    }
+
+    @Test
+    void keyCountsAccumulateAcrossWindows() {
+        TopK topK = new WindowedHeavyKeeper(10, 1000, 3, 0.92, 12, 3);
+        // 单个子窗口内达不到最小计数，窗口内的总和达到后进入 TopK
+        topK.add("a", 8);
+        topK.fading();
+        assertThat(topK.add("a", 8).isHotKey()).isTrue();
+        assertThat(counts(topK)).isEqualTo(Map.of("a", 16));
+    }
+
+    private static Map<String, Integer> counts(TopK topK) {
+        return topK.list().stream().collect(Collectors.toMap(Item::key, Item::count));
+    }
+}
@@ -0,0 +1,63 @@
+package com.allen.thumb.manager.thumb;
+
+import com.allen.thumb.config.ThumbStorageProperties;
+import com.allen.thumb.service.ThumbService;
+import com.allen.thumb.service.impl.ThumbServiceImpl;
+import com.allen.thumb.service.impl.ThumbServiceMQImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 空闲过期和 set 结构只能与 MQ 点赞实现一起使用
+ *
+ * @author KiveAllen
+ */
+class ThumbStorageCheckerTests {
+
+    private final ThumbStorageProperties storageProperties = new ThumbStorageProperties();
+
+    @Test
+    void hashLayoutWorksWithEveryService() {
+        assertThatCode(() -> checker(localCacheService()).validate()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void tieringRequiresMqService() {
+        storageProperties.setIdleTtl(Duration.ofDays(7));
+        assertThatThrownBy(() -> checker(localCacheService()).validate())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("ThumbServiceImpl");
+        assertThatCode(() -> checker(mqService()).validate()).doesNotThrowAnyException();
+    }
+
+    @Test
+    void setLayoutRequiresMqService() {
+        storageProperties.setLayout(ThumbStorageProperties.Layout.SET);
+        assertThatThrownBy(() -> checker(localCacheService()).validate())
+                .isInstanceOf(IllegalStateException.class);
+        assertThatCode(() -> checker(mqService()).validate()).doesNotThrowAnyException();
+    }
+
+    private ThumbStorageChecker checker(ThumbService thumbService) {
+        UserThumbStore userThumbStore = new UserThumbStore();
+        ReflectionTestUtils.setField(userThumbStore, "thumbStorageProperties", storageProperties);
+        ThumbStorageChecker checker = new ThumbStorageChecker();
+        ReflectionTestUtils.setField(checker, "userThumbStore", userThumbStore);
+        ReflectionTestUtils.setField(checker, "thumbStorageProperties", storageProperties);
+        ReflectionTestUtils.setField(checker, "thumbService", thumbService);
+        return checker;
+    }
+
+    private static ThumbService localCacheService() {
+        return new ThumbServiceImpl(null, null, null, null, null, null, null);
+    }
+
+    private static ThumbService mqService() {
+        return new ThumbServiceMQImpl(null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,163 @@
+package com.allen.thumb.manager.thumb;
+
+import com.allen.thumb.config.ThumbStorageProperties;
+import com.allen.thumb.constant.RedisLuaScriptConstant;
+import com.allen.thumb.constant.ThumbConstant;
+import com.allen.thumb.mapper.ThumbMapper;
+import com.allen.thumb.model.entity.Thumb;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.util.RedisKeyUtil;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 空闲过期后的重新加载、后台只读访问和 Redis 配置读取，脚本结果由测试预先给出
+ *
+ * @author KiveAllen
+ */
+class UserThumbStoreTests {
+
+    private static final long IDLE_TTL_SECONDS = Duration.ofDays(1).toSeconds();
+
+    private final ScriptedRedisTemplate redisTemplate = new ScriptedRedisTemplate();
+
+    private final ThumbStorageProperties storageProperties = new ThumbStorageProperties();
+
+    private final UserThumbStore userThumbStore = new UserThumbStore();
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper 需要实体的字段映射
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Thumb.class);
+    }
+
+    @BeforeEach
+    void setup() {
+        storageProperties.setIdleTtl(Duration.ofDays(1));
+        ReflectionTestUtils.setField(userThumbStore, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(userThumbStore, "thumbStorageProperties", storageProperties);
+        // 数据库中用户 1 点赞过 5 和 6
+        ReflectionTestUtils.setField(userThumbStore, "thumbMapper", Proxy.newProxyInstance(
+                ThumbMapper.class.getClassLoader(), new Class<?>[]{ThumbMapper.class},
+                (proxy, method, args) -> List.of(5L, 6L)));
+    }
+
+    @Test
+    void coldUpdateReloadsAndRetries() {
+        redisTemplate.responses.addAll(List.of(-2L, 2L, 1L));
+
+        assertThat(userThumbStore.thumb(1L, 7L)).isEqualTo(1L);
+        assertThat(redisTemplate.scripts()).containsExactly(RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
+                RedisLuaScriptConstant.LOAD_THUMB_SCRIPT_MQ, RedisLuaScriptConstant.THUMB_SCRIPT_MQ);
+        Call load = redisTemplate.calls.get(1);
+        assertThat(load.keys()).containsExactly(RedisKeyUtil.getUserThumbKey(1L), RedisKeyUtil.getUserThumbColdKey(1L));
+        assertThat(load.args()).containsExactly(IDLE_TTL_SECONDS, 5L, 6L);
+        assertThat(userThumbStore.reloads()).isEqualTo(1);
+    }
+
+    @Test
+    void stillColdAfterReloadFails() {
+        redisTemplate.responses.addAll(List.of(-2L, 0L, -2L));
+
+        assertThatThrownBy(() -> userThumbStore.unthumb(1L, 7L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("点赞数据加载失败");
+        assertThat(redisTemplate.calls).hasSize(3);
+    }
+
+    @Test
+    void coldLoadReloadsAndRetries() {
+        storageProperties.setLayout(ThumbStorageProperties.Layout.SET);
+        redisTemplate.responses.addAll(List.of(List.of(-2L), 2L, List.of(1L, 1L, 0L)));
+
+        assertThat(userThumbStore.load(RedisKeyUtil.getUserThumbKey(1L), List.of("5", "x", "8")))
+                .containsExactly(ThumbConstant.MQ_THUMB_CONSTANT, null, null);
+        assertThat(redisTemplate.scripts()).containsExactly(RedisLuaScriptConstant.HAS_THUMB_SET_SCRIPT,
+                RedisLuaScriptConstant.LOAD_THUMB_SET_SCRIPT, RedisLuaScriptConstant.HAS_THUMB_SET_SCRIPT);
+        // 重试使用同样的参数
+        assertThat(redisTemplate.calls.get(2).args()).isEqualTo(redisTemplate.calls.get(0).args())
+                .containsExactly(IDLE_TTL_SECONDS, 5L, 8L);
+        assertThat(userThumbStore.reloads()).isEqualTo(1);
+    }
+
+    /**
+     * 对账读取不执行脚本，不会刷新空闲过期时间
+     */
+    @Test
+    void storedBlogIdsRunsNoScript() {
+        redisTemplate.hash(RedisKeyUtil.getUserThumbKey(1L)).put("7", 1L);
+
+        assertThat(userThumbStore.storedBlogIds(1L)).containsExactly(7L);
+        assertThat(redisTemplate.calls).isEmpty();
+
+        // 用户请求的读取会刷新过期时间
+        redisTemplate.responses.add(List.of(1L));
+        assertThat(userThumbStore.blogIds(1L)).containsExactly(7L);
+        assertThat(redisTemplate.scripts()).containsExactly(RedisLuaScriptConstant.HAS_THUMB_SCRIPT_MQ);
+        assertThat(redisTemplate.calls.get(0).args()).containsExactly(IDLE_TTL_SECONDS);
+    }
+
+    /**
+     * 集群时各节点的配置带地址前缀，取最小值
+     */
+    @Test
+    void intsetEntriesTakesMinimumAcrossNodes() {
+        redisTemplate.config.setProperty("127.0.0.1:7000.set-max-intset-entries", "4096");
+        redisTemplate.config.setProperty("127.0.0.1:7001.set-max-intset-entries", "512");
+        assertThat(userThumbStore.intsetEntries()).isEqualTo(512);
+
+        redisTemplate.config.clear();
+        assertThat(userThumbStore.intsetEntries()).isEqualTo(-1);
+    }
+
+    private record Call(RedisScript<?> script, List<String> keys, List<Object> args) {
+    }
+
+    /**
+     * 记录脚本调用，按顺序返回预先给出的结果
+     */
+    private static final class ScriptedRedisTemplate extends InMemoryRedisTemplate {
+
+        private final Queue<Object> responses = new ArrayDeque<>();
+
+        private final List<Call> calls = new ArrayList<>();
+
+        // CONFIG GET 的结果
+        private final Properties config = new Properties();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisCallback<T> action) {
+            return (T) config;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            calls.add(new Call(script, keys, List.of(args)));
+            return (T) responses.remove();
+        }
+
+        private List<RedisScript<?>> scripts() {
+            return calls.stream().<RedisScript<?>>map(Call::script).toList();
+        }
+    }
+}
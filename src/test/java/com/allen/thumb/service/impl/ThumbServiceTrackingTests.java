@@ -0,0 +1,98 @@
+package com.allen.thumb.service.impl;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.manager.cache.CacheManager;
+import com.allen.thumb.manager.cache.HotBlogLikers;
+import com.allen.thumb.manager.cache.InMemoryInvalidationBus;
+import com.allen.thumb.manager.cache.TrackingRedisClient;
+import com.allen.thumb.manager.cache.UserThumbFilter;
+import com.allen.thumb.support.InMemoryRedisTemplate;
+import com.allen.thumb.support.TestCacheManagers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 开启 Redis 客户端缓存后，点赞状态查询经过客户端缓存读取
+ * <p>
+ * Redis 替身中没有数据，能查到点赞说明结果来自客户端缓存
+ *
+ * @author KiveAllen
+ */
+class ThumbServiceTrackingTests {
+
+    private final InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+
+    private final UnifiedJedis jedis = mock(UnifiedJedis.class);
+
+    private CacheManager cacheManager;
+
+    private UserThumbFilter userThumbFilter;
+
+    @BeforeEach
+    void setup() {
+        HotKeyProperties properties = new HotKeyProperties();
+        cacheManager = TestCacheManagers.create(redisTemplate, properties,
+                new InMemoryInvalidationBus(new InMemoryInvalidationBus.Hub(), Duration.ofMillis(20), 512));
+        RedisSerializer<Object> serializer = RedisSerializer.java();
+        when(jedis.hget(aryEq(bytes("thumb:1")), aryEq(bytes("100")))).thenReturn(serializer.serialize(5L));
+        ReflectionTestUtils.setField(cacheManager, "trackingRedisClient",
+                new TrackingRedisClient(jedis, serializer, Duration.ofSeconds(30)));
+        userThumbFilter = new UserThumbFilter();
+        ReflectionTestUtils.setField(userThumbFilter, "hotKeyProperties", properties);
+    }
+
+    @Test
+    void hasThumbsReadsEachFieldFromTrackingCache() {
+        ThumbServiceImpl thumbService = new ThumbServiceImpl(null, null, null, redisTemplate, cacheManager,
+                userThumbFilter, new HotBlogLikers());
+
+        assertThat(thumbService.hasThumbs(List.of(100L, 200L), 1L)).containsExactly(100L);
+        verify(jedis, times(2)).hget(any(byte[].class), any(byte[].class));
+        // 客户端缓存模式不写本地缓存
+        assertThat(cacheManager.localCacheSize()).isZero();
+    }
+
+    @Test
+    void hasThumbReadsFromTrackingCache() {
+        ThumbServiceMQImpl thumbService = new ThumbServiceMQImpl(null, null, null, cacheManager, userThumbFilter,
+                new HotBlogLikers());
+
+        assertThat(thumbService.hasThumb(100L, 1L)).isTrue();
+        assertThat(thumbService.hasThumb(200L, 1L)).isFalse();
+        verify(jedis, times(2)).hget(any(byte[].class), any(byte[].class));
+    }
+
+    /**
+     * 客户端缓存出错后回退到 Redis，暂停期间不再访问客户端缓存
+     */
+    @Test
+    void hasThumbFallsBackWhenTrackingFails() {
+        when(jedis.hget(aryEq(bytes("thumb:2")), any(byte[].class))).thenThrow(new IllegalStateException("down"));
+        redisTemplate.hash("thumb:2").put("100", 1L);
+        ThumbServiceMQImpl thumbService = new ThumbServiceMQImpl(null, null, null, cacheManager, userThumbFilter,
+                new HotBlogLikers());
+
+        assertThat(thumbService.hasThumb(100L, 2L)).isTrue();
+        assertThat(thumbService.hasThumb(100L, 1L)).isFalse();
+        verify(jedis, times(1)).hget(any(byte[].class), any(byte[].class));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package com.allen.thumb.support;
+
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内的 Redis 替身，用 ConcurrentHashMap 模拟 Redis 的 hash 结构
+ * <p>
+ * 只实现了业务代码用到的 hash 命令，不需要连接工厂即可使用；
+ * 可以设置每次命令的模拟往返延迟，用于压测本地缓存命中带来的收益。
+ *
+ * @author KiveAllen
+ */
+public class InMemoryRedisTemplate extends RedisTemplate<String, Object> {
+
+    private final Map<String, Map<Object, Object>> hashes = new ConcurrentHashMap<>();
+
+    private final HashOperations<String, Object, Object> hashOperations;
+
+    // 每次命令的模拟往返延迟
+    private volatile long latencyNanos;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryRedisTemplate() {
+        this.hashOperations = (HashOperations<String, Object, Object>) Proxy.newProxyInstance(
+                HashOperations.class.getClassLoader(),
+                new Class<?>[]{HashOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> "InMemoryHashOperations";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "getOperations" -> this;
+                    default -> {
+                        roundTrip();
+                        yield hashCommand(method.getName(), args);
+                    }
+                });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+        return (HashOperations<String, HK, HV>) hashOperations;
+    }
+
+    /**
+     * 直接访问底层数据，用于准备数据和校验
+     */
+    public Map<Object, Object> hash(String key) {
+        return hashes.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    }
+
+    public void setLatencyNanos(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    private void roundTrip() {
+        long nanos = latencyNanos;
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    private Object hashCommand(String command, Object[] args) {
+        String key = (String) args[0];
+        Map<Object, Object> hash = hashes.get(key);
+        switch (command) {
+            case "get":
+                return hash == null ? null : hash.get(args[1]);
+            case "multiGet": {
+                Collection<?> fields = (Collection<?>) args[1];
+                List<Object> values = new ArrayList<>(fields.size());
+                for (Object field : fields) {
+                    values.add(hash == null ? null : hash.get(field));
+                }
+                return values;
+            }
+            case "hasKey":
+                return hash != null && hash.containsKey(args[1]);
+            case "put":
+                hash(key).put(args[1], args[2]);
+                return null;
+            case "putIfAbsent":
+                return hash(key).putIfAbsent(args[1], args[2]) == null;
+            case "putAll":
+                hash(key).putAll((Map<?, ?>) args[1]);
+                return null;
+            case "delete": {
+                long deleted = 0;
+                if (hash != null) {
+                    for (Object field : (Object[]) args[1]) {
+                        if (hash.remove(field) != null) {
+                            deleted++;
+                        }
+                    }
+                }
+                return deleted;
+            }
+            case "increment": {
+                long delta = ((Number) args[2]).longValue();
+                return (Long) hash(key).merge(args[1], delta, (a, b) -> ((Number) a).longValue() + (Long) b);
+            }
+            case "entries":
+                return hash == null ? new HashMap<>() : new HashMap<>(hash);
+            case "keys":
+                return hash == null ? new HashSet<>() : new HashSet<>(hash.keySet());
+            case "values":
+                return hash == null ? new ArrayList<>() : new ArrayList<>(hash.values());
+            case "size":
+                return hash == null ? 0L : (long) hash.size();
+            default:
+                throw new UnsupportedOperationException("InMemoryRedisTemplate 不支持 HashOperations." + command);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.allen.thumb.support;
+
+import com.allen.thumb.config.HotKeyProperties;
+import com.allen.thumb.manager.cache.CacheManager;
+import com.allen.thumb.manager.cache.InvalidationBus;
+import com.allen.thumb.manager.cache.TrackingRedisClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * 不启动 Spring 容器，手动装配 CacheManager，供压测和多节点测试使用
+ *
+ * @author KiveAllen
+ */
+public final class TestCacheManagers {
+
+    private TestCacheManagers() {
+    }
+
+    public static CacheManager create(RedisTemplate<String, Object> redisTemplate,
+                                      HotKeyProperties properties,
+                                      InvalidationBus invalidationBus) {
+        CacheManager cacheManager = new CacheManager();
+        ReflectionTestUtils.setField(cacheManager, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cacheManager, "hotKeyProperties", properties);
+        ReflectionTestUtils.setField(cacheManager, "invalidationBus", invalidationBus);
+        ReflectionTestUtils.setField(cacheManager, "trackingRedisClient", TrackingRedisClient.disabled());
+        ReflectionTestUtils.setField(cacheManager, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cacheManager, "fieldLoaders", List.of());
+        cacheManager.localCache();
+        cacheManager.init();
+        return cacheManager;
+    }
+}
@@ -0,0 +1,93 @@
+package com.allen.thumb.support;
+
+import com.allen.thumb.manager.cache.Item;
+import com.allen.thumb.manager.cache.TopK;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * TopK 算法的精度评估，供单元测试和 TopKComparison 共用
+ * <p>
+ * 流量按阶段回放，阶段之间调用一次 fading()，真实计数同样在阶段之间减半，与 HeavyKeeper 的衰减口径一致。
+ *
+ * @author KiveAllen
+ */
+public final class TopKAccuracy {
+
+    public static final int KEY_SPACE = 100_000;
+
+    private TopKAccuracy() {
+    }
+
+    /**
+     * 单阶段的 Zipf 流量
+     */
+    public static String[][] zipf(double s, int length, long seed) {
+        return new String[][]{ZipfGenerator.stream("key-", KEY_SPACE, s, length, 0, new SplittableRandom(seed))};
+    }
+
+    /**
+     * 突发流量：每个阶段把排名整体平移，热点 key 换成另一批
+     */
+    public static String[][] bursty(double s, int length, int phases, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[][] stream = new String[phases][];
+        for (int phase = 0; phase < phases; phase++) {
+            stream[phase] = ZipfGenerator.stream("key-", KEY_SPACE, s, length / phases, phase * 1000, random);
+        }
+        return stream;
+    }
+
+    /**
+     * 单线程回放并评估 Top k
+     */
+    public static Report evaluate(TopK topK, String[][] phases, int k) {
+        for (int p = 0; p < phases.length; p++) {
+            if (p > 0) {
+                topK.fading();
+            }
+            for (String key : phases[p]) {
+                topK.add(key, 1);
+            }
+        }
+
+        Map<String, Double> truth = exactCounts(phases);
+        List<String> trueTop = truth.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .toList();
+        List<Item> top = topK.list().stream().limit(k).toList();
+        long hits = top.stream().map(Item::key).filter(trueTop::contains).count();
+        double errors = 0;
+        for (Item item : top) {
+            double actual = truth.getOrDefault(item.key(), 0.0);
+            errors += Math.abs(item.count() - actual) / Math.max(1.0, actual);
+        }
+        return new Report((double) hits / k, top.isEmpty() ? Double.NaN : errors / top.size());
+    }
+
+    // 真实计数，阶段之间减半
+    private static Map<String, Double> exactCounts(String[][] phases) {
+        Map<String, Double> counts = new HashMap<>();
+        for (int p = 0; p < phases.length; p++) {
+            if (p > 0) {
+                counts.replaceAll((key, count) -> count / 2);
+            }
+            for (String key : phases[p]) {
+                counts.merge(key, 1.0, Double::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @param precision precision@k，与真实 Top k 的重合比例
+     * @param are       Top k 的平均相对误差
+     */
+    public record Report(double precision, double are) {
+    }
+}
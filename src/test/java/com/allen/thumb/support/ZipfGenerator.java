@@ -0,0 +1,56 @@
+package com.allen.thumb.support;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf 分布的 key 流生成器，供压测和算法对比使用
+ *
+ * @author KiveAllen
+ */
+public final class ZipfGenerator {
+
+    private ZipfGenerator() {
+    }
+
+    /**
+     * 生成 Zipf 分布的 key 流，排名 r 的 key 为 prefix + (r + offset) % n
+     *
+     * @param n      key 数量
+     * @param s      偏斜系数，越大越集中
+     * @param length 流长度
+     * @param offset 排名平移量，用于模拟热点切换
+     * @param random 随机源，固定种子保证可复现
+     */
+    public static String[] stream(String prefix, int n, double s, int length, int offset, SplittableRandom random) {
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = prefix + (i + offset) % n;
+        }
+        int[] ranks = ranks(n, s, length, random);
+        String[] stream = new String[length];
+        for (int i = 0; i < length; i++) {
+            stream[i] = keys[ranks[i]];
+        }
+        return stream;
+    }
+
+    /**
+     * 生成 Zipf 分布的排名流，排名从 0 开始
+     */
+    public static int[] ranks(int n, double s, int length, SplittableRandom random) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        int[] ranks = new int[length];
+        for (int i = 0; i < length; i++) {
+            double u = random.nextDouble() * sum;
+            int rank = Arrays.binarySearch(cdf, u);
+            ranks[i] = rank >= 0 ? rank : Math.min(n - 1, -rank - 1);
+        }
+        return ranks;
+    }
+}
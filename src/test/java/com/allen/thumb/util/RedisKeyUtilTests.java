@@ -0,0 +1,47 @@
+package com.allen.thumb.util;
+
+import com.allen.thumb.constant.HotKeyConstant;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 同一个 Lua 脚本或命令访问的 key 必须位于 Redis Cluster 的同一个 slot
+ *
+ * @author KiveAllen
+ */
+class RedisKeyUtilTests {
+
+    @Test
+    void userKeysShareSlot() {
+        for (long userId : new long[]{1, 42, 1912345678901234567L}) {
+            assertSameSlot(RedisKeyUtil.getTempThumbKey(userId, "11:20:20"),
+                    RedisKeyUtil.getUserThumbKey(userId));
+            assertSameSlot(RedisKeyUtil.getUserThumbSetKey(userId),
+                    RedisKeyUtil.getUserThumbKey(userId),
+                    RedisKeyUtil.getUserThumbColdKey(userId));
+        }
+    }
+
+    @Test
+    void usersSpreadAcrossSlots() {
+        assertThat(ClusterSlotHashUtil.calculateSlot(RedisKeyUtil.getUserThumbKey(1L)))
+                .isNotEqualTo(ClusterSlotHashUtil.calculateSlot(RedisKeyUtil.getUserThumbKey(2L)));
+    }
+
+    @Test
+    void hotKeysShareSlot() {
+        assertSameSlot(RedisKeyUtil.getNodeHotKey("node-a"),
+                RedisKeyUtil.getNodeHotKey("node-b"),
+                HotKeyConstant.HOT_KEY_NODES_KEY,
+                HotKeyConstant.GLOBAL_HOT_KEY);
+    }
+
+    private static void assertSameSlot(String... keys) {
+        int slot = ClusterSlotHashUtil.calculateSlot(keys[0]);
+        for (String key : keys) {
+            assertThat(ClusterSlotHashUtil.calculateSlot(key)).as(key).isEqualTo(slot);
+        }
+    }
+}